@@ -0,0 +1,53 @@
+package dk.electricity.pricecollector.benchmark;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Deterministic, realistic test data shared by the benchmarks
+ */
+final class BenchmarkData {
+
+    private static final ZoneId COPENHAGEN = ZoneId.of("Europe/Copenhagen");
+    private static final double EXCHANGE_RATE = 7.4628;
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * A day payload in the elprisenligenu.dk format with the given number of equally sized slots
+     */
+    static String dayPayload(LocalDate date, int slots) {
+        Random random = new Random(date.toEpochDay());
+        int minutesPerSlot = 24 * 60 / slots;
+        ZonedDateTime start = date.atStartOfDay(COPENHAGEN);
+
+        StringBuilder json = new StringBuilder(slots * 160).append('[');
+        for (int i = 0; i < slots; i++) {
+            ZonedDateTime timeStart = start.plusMinutes((long) i * minutesPerSlot);
+            ZonedDateTime timeEnd = timeStart.plusMinutes(minutesPerSlot);
+            double dkkPerKWh = spotPrice(random, timeStart.getHour());
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"DKK_per_kWh\":").append(String.format(Locale.ROOT, "%.5f", dkkPerKWh))
+                .append(",\"EUR_per_kWh\":").append(String.format(Locale.ROOT, "%.5f", dkkPerKWh / EXCHANGE_RATE))
+                .append(",\"EXR\":").append(EXCHANGE_RATE)
+                .append(",\"time_start\":\"").append(timeStart.toOffsetDateTime())
+                .append("\",\"time_end\":\"").append(timeEnd.toOffsetDateTime())
+                .append("\"}");
+        }
+        return json.append(']').toString();
+    }
+
+    /**
+     * Spot price in DKK/kWh with a morning and an evening peak
+     */
+    static double spotPrice(Random random, int hour) {
+        double peak = (hour >= 7 && hour <= 9) || (hour >= 17 && hour <= 20) ? 1.2 : 0.0;
+        return Math.max(-0.1, 0.4 + peak + random.nextGaussian() * 0.25);
+    }
+}
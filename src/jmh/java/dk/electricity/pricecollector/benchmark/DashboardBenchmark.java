@@ -0,0 +1,105 @@
+package dk.electricity.pricecollector.benchmark;
+
+import dk.electricity.pricecollector.config.RegionProperties;
+import dk.electricity.pricecollector.model.ElectricityPrice;
+import dk.electricity.pricecollector.model.PriceMicros;
+import dk.electricity.pricecollector.service.DashboardModel;
+import dk.electricity.pricecollector.service.DashboardView;
+import dk.electricity.pricecollector.service.DaySnapshot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.context.IExpressionContext;
+import org.thymeleaf.linkbuilder.StandardLinkBuilder;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The work behind a dashboard request for one day: building the DaySnapshot (summary statistics,
+ * spot price ranking and row classes, as done on a cache miss) and rendering dashboard.html
+ * with a full 24-hour model, using the application's template from the classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DashboardBenchmark {
+
+    /** 24 hourly or 96 quarter-hour prices per day */
+    @Param({"24", "96"})
+    private int slots;
+
+    private LocalDate date;
+    private List<ElectricityPrice> prices;
+    private SpringTemplateEngine templateEngine;
+    private Context context;
+
+    @Setup
+    public void setUp() {
+        date = LocalDate.of(2025, 9, 21);
+        Random random = new Random(42);
+        int resolutionMinutes = 24 * 60 / slots;
+        prices = new ArrayList<>(slots);
+        for (int i = 0; i < slots; i++) {
+            LocalDateTime time = date.atStartOfDay().plusMinutes((long) i * resolutionMinutes);
+            BigDecimal spotPrice = BigDecimal.valueOf(BenchmarkData.spotPrice(random, time.getHour()))
+                .setScale(PriceMicros.SCALE, RoundingMode.HALF_UP);
+            prices.add(new ElectricityPrice(time, date, i, resolutionMinutes, spotPrice,
+                new BigDecimal("0.058000"), new BigDecimal("0.012500"), new BigDecimal("0.090000"), "DK1"));
+        }
+
+        ClassLoaderTemplateResolver resolver = new ClassLoaderTemplateResolver();
+        resolver.setPrefix("templates/");
+        resolver.setSuffix(".html");
+        resolver.setTemplateMode(TemplateMode.HTML);
+        resolver.setCharacterEncoding("UTF-8");
+        resolver.setCacheable(true);
+        templateEngine = new SpringTemplateEngine();
+        templateEngine.setTemplateResolver(resolver);
+        templateEngine.setLinkBuilder(new StandardLinkBuilder() {
+            @Override
+            protected String computeContextPath(IExpressionContext context, String base, Map<String, Object> parameters) {
+                return ""; // No servlet request outside the application; links are rendered root-relative
+            }
+        });
+
+        // The model DashboardController renders for the default region at noon, with only today stored
+        DashboardView view = new DashboardView("DK1", date.atTime(12, 0), DaySnapshot.of("DK1", date.minusDays(1), List.of()),
+            buildSnapshot(), DaySnapshot.of("DK1", date.plusDays(1), List.of()));
+        context = new Context();
+        context.setVariables(DashboardModel.of(DashboardModel.TODAY, view, "West Denmark",
+            new RegionProperties().getZones(), true));
+    }
+
+    @Benchmark
+    public DaySnapshot buildSnapshot() {
+        return DaySnapshot.of("DK1", date, prices);
+    }
+
+    @Benchmark
+    public String renderDashboard() {
+        return templateEngine.process("dashboard", context);
+    }
+}
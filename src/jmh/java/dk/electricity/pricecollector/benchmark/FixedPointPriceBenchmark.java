@@ -0,0 +1,146 @@
+package dk.electricity.pricecollector.benchmark;
+
+import dk.electricity.pricecollector.model.ElectricityPrice;
+import dk.electricity.pricecollector.model.PriceMicros;
+import dk.electricity.pricecollector.service.DaySnapshot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BigDecimal entity fields versus micro-DKK longs for the read model work done on prices:
+ * ranking by spot price, summary statistics and totaling the price components,
+ * over a year of hourly prices. Run with -prof gc to compare allocation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FixedPointPriceBenchmark {
+
+    private static final int HOURS_PER_YEAR = 365 * 24;
+
+    private List<ElectricityPrice> prices;
+    private long[] spotMicros;
+    private long[] transmissionMicros;
+    private long[] systemMicros;
+    private long[] taxMicros;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        LocalDateTime start = LocalDate.of(2025, 1, 1).atStartOfDay();
+        prices = new ArrayList<>(HOURS_PER_YEAR);
+        for (int i = 0; i < HOURS_PER_YEAR; i++) {
+            LocalDateTime time = start.plusHours(i);
+            BigDecimal spotPrice = BigDecimal.valueOf(BenchmarkData.spotPrice(random, time.getHour()))
+                .setScale(PriceMicros.SCALE, RoundingMode.HALF_UP);
+            prices.add(new ElectricityPrice(time, time.toLocalDate(), time.getHour(), spotPrice,
+                new BigDecimal("0.058000"), new BigDecimal("0.012500"), new BigDecimal("0.090000"), "DK1"));
+        }
+
+        spotMicros = new long[HOURS_PER_YEAR];
+        transmissionMicros = new long[HOURS_PER_YEAR];
+        systemMicros = new long[HOURS_PER_YEAR];
+        taxMicros = new long[HOURS_PER_YEAR];
+        for (int i = 0; i < HOURS_PER_YEAR; i++) {
+            ElectricityPrice price = prices.get(i);
+            spotMicros[i] = PriceMicros.of(price.getSpotPrice());
+            transmissionMicros[i] = PriceMicros.of(price.getTransmissionTariff());
+            systemMicros[i] = PriceMicros.of(price.getSystemTariff());
+            taxMicros[i] = PriceMicros.of(price.getElectricityTax());
+        }
+    }
+
+    @Benchmark
+    public int[] rankBigDecimal() {
+        // Previous ranking: boxed indices sorted with a comparator on the BigDecimal spot price
+        Integer[] order = new Integer[prices.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparing(i -> prices.get(i).getSpotPrice()));
+        int[] ranks = new int[order.length];
+        for (int position = 0; position < order.length; position++) {
+            ranks[order[position]] = position + 1;
+        }
+        return ranks;
+    }
+
+    @Benchmark
+    public int[] rankMicros() {
+        return DaySnapshot.rankBySpotPrice(spotMicros);
+    }
+
+    @Benchmark
+    public double summarizeBigDecimal() {
+        ElectricityPrice lowest = null;
+        ElectricityPrice highest = null;
+        double sum = 0.0;
+        for (ElectricityPrice price : prices) {
+            if (lowest == null || price.getSpotPrice().compareTo(lowest.getSpotPrice()) < 0) {
+                lowest = price;
+            }
+            if (highest == null || price.getSpotPrice().compareTo(highest.getSpotPrice()) > 0) {
+                highest = price;
+            }
+            sum += price.getSpotPrice().doubleValue();
+        }
+        return lowest.getSpotPrice().doubleValue() + highest.getSpotPrice().doubleValue() + sum / prices.size();
+    }
+
+    @Benchmark
+    public double summarizeMicros() {
+        long lowest = Long.MAX_VALUE;
+        long highest = Long.MIN_VALUE;
+        long sum = 0;
+        for (long spot : spotMicros) {
+            lowest = Math.min(lowest, spot);
+            highest = Math.max(highest, spot);
+            sum += spot;
+        }
+        return PriceMicros.toDouble(lowest) + PriceMicros.toDouble(highest) + PriceMicros.toDouble(sum) / spotMicros.length;
+    }
+
+    @Benchmark
+    public BigDecimal[] totalBigDecimal() {
+        BigDecimal[] totals = new BigDecimal[prices.size()];
+        for (int i = 0; i < totals.length; i++) {
+            ElectricityPrice price = prices.get(i);
+            totals[i] = price.getSpotPrice()
+                .add(price.getTransmissionTariff())
+                .add(price.getSystemTariff())
+                .add(price.getElectricityTax());
+        }
+        return totals;
+    }
+
+    @Benchmark
+    public long[] totalMicros() {
+        long[] totals = new long[spotMicros.length];
+        for (int i = 0; i < totals.length; i++) {
+            totals[i] = spotMicros[i] + transmissionMicros[i] + systemMicros[i] + taxMicros[i];
+        }
+        return totals;
+    }
+}
@@ -0,0 +1,132 @@
+package dk.electricity.pricecollector.benchmark;
+
+import dk.electricity.pricecollector.DanishElectricityPriceCollectorApplication;
+import dk.electricity.pricecollector.model.ElectricityPrice;
+import dk.electricity.pricecollector.repository.ElectricityPriceBatchRepository.UpsertResult;
+import dk.electricity.pricecollector.service.ElectricityPriceService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+/**
+ * Compares the legacy ingestion path (one existence check per row, then saveAll) with the
+ * batch upsert path for a synthetic backfill against the configured database, then exits.
+ * Uses dedicated BENCH regions, which are removed again afterwards, so real data is never touched.
+ * The context starts without the price archive, scheduled jobs and the startup fetch, so nothing
+ * is fetched from elprisenligenu.dk and no BENCH years are written to the archive directory.
+ *
+ * Run with: ./mvnw -Pjmh compile exec:java@ingest-benchmark
+ */
+public class IngestBenchmark {
+
+    private static final Logger logger = LoggerFactory.getLogger(IngestBenchmark.class);
+    private static final List<String> BENCHMARK_REGIONS = List.of("BENCH1", "BENCH2");
+
+    private final ElectricityPriceService electricityPriceService;
+    private final JdbcTemplate jdbcTemplate;
+    private final int days;
+
+    private IngestBenchmark(ConfigurableApplicationContext context) {
+        this.electricityPriceService = context.getBean(ElectricityPriceService.class);
+        this.jdbcTemplate = context.getBean(JdbcTemplate.class);
+        this.days = context.getEnvironment().getProperty("price-collector.benchmark.days", Integer.class, 365);
+    }
+
+    public static void main(String[] args) {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(DanishElectricityPriceCollectorApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                    "price-collector.archive.enabled=false",
+                    "price-collector.scheduling.enabled=false",
+                    "price-collector.startup-fetch.enabled=false")
+                .run(args)) {
+            new IngestBenchmark(context).run();
+        }
+    }
+
+    private void run() {
+        LocalDate firstDay = LocalDate.now().minusDays(days);
+        logger.info("Ingest benchmark: {} days x {} regions x 24 hours", days, BENCHMARK_REGIONS.size());
+
+        try {
+            deleteBenchmarkRows();
+            long legacyColdMs = timeLegacy(firstDay);
+            long legacyWarmMs = timeLegacy(firstDay); // every row already exists: the daily refetch case
+
+            deleteBenchmarkRows();
+            long upsertColdMs = timeUpsert(firstDay);
+            long upsertWarmMs = timeUpsert(firstDay);
+
+            long rows = (long) days * BENCHMARK_REGIONS.size() * 24;
+            logger.info("Ingest benchmark results for {} rows:", rows);
+            logger.info("  legacy exists+saveAll  empty table: {} ms ({} rows/s), refetch: {} ms",
+                legacyColdMs, rowsPerSecond(rows, legacyColdMs), legacyWarmMs);
+            logger.info("  batch upsert           empty table: {} ms ({} rows/s), refetch: {} ms",
+                upsertColdMs, rowsPerSecond(rows, upsertColdMs), upsertWarmMs);
+        } finally {
+            deleteBenchmarkRows();
+            jdbcTemplate.update("DELETE FROM regions WHERE code IN (?, ?)", BENCHMARK_REGIONS.get(0), BENCHMARK_REGIONS.get(1));
+        }
+    }
+
+    private long timeLegacy(LocalDate firstDay) {
+        long start = System.nanoTime();
+        for (int d = 0; d < days; d++) {
+            for (String region : BENCHMARK_REGIONS) {
+                // Same steps as the pre-upsert fetchAndSavePricesForDate
+                List<ElectricityPrice> newPrices = generateDay(firstDay.plusDays(d), region).stream()
+                    .filter(price -> !electricityPriceService.priceExists(price.getPriceDateTime(), price.getRegion()))
+                    .collect(Collectors.toList());
+                if (!newPrices.isEmpty()) {
+                    electricityPriceService.savePrices(newPrices);
+                }
+            }
+        }
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    private long timeUpsert(LocalDate firstDay) {
+        long start = System.nanoTime();
+        UpsertResult total = UpsertResult.EMPTY;
+        for (int d = 0; d < days; d++) {
+            for (String region : BENCHMARK_REGIONS) {
+                total = total.plus(electricityPriceService.upsertPrices(generateDay(firstDay.plusDays(d), region)));
+            }
+        }
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        logger.info("Batch upsert run: {}", total);
+        return elapsedMs;
+    }
+
+    private List<ElectricityPrice> generateDay(LocalDate date, String region) {
+        // Seeded per day/region so repeated runs produce identical prices
+        Random random = new Random(date.toEpochDay() * 31 + region.hashCode());
+        List<ElectricityPrice> prices = new ArrayList<>(24);
+        for (int hour = 0; hour < 24; hour++) {
+            BigDecimal spotPrice = BigDecimal.valueOf(random.nextDouble() * 3.0).setScale(6, RoundingMode.HALF_UP);
+            prices.add(new ElectricityPrice(date.atTime(hour, 0), date, hour, spotPrice,
+                new BigDecimal("0.058"), new BigDecimal("0.0125"), new BigDecimal("0.090"), region));
+        }
+        return prices;
+    }
+
+    private void deleteBenchmarkRows() {
+        jdbcTemplate.update("DELETE FROM electricity_prices WHERE region_id IN (SELECT id FROM regions WHERE code IN (?, ?))",
+            BENCHMARK_REGIONS.get(0), BENCHMARK_REGIONS.get(1));
+    }
+
+    private static long rowsPerSecond(long rows, long elapsedMs) {
+        return elapsedMs == 0 ? rows : rows * 1000 / elapsedMs;
+    }
+}
@@ -0,0 +1,66 @@
+package dk.electricity.pricecollector.benchmark;
+
+import dk.electricity.pricecollector.config.TariffProperties;
+import dk.electricity.pricecollector.model.ElectricityPrice;
+import dk.electricity.pricecollector.service.ElprisenLigenuService;
+import dk.electricity.pricecollector.service.TariffEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Buffered (String + SpotPrice[] + convert) versus streaming (JsonParser on the response stream)
+ * parsing of one elprisenligenu.dk day payload. Run with -prof gc to compare allocation per day.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SpotPriceParsingBenchmark {
+
+    /** 24 hourly or 96 quarter-hour entries per day */
+    @Param({"24", "96"})
+    private int slots;
+
+    private ElprisenLigenuService service;
+    private byte[] payload;
+    private LocalDate date;
+
+    @Setup
+    public void setUp() {
+        service = new ElprisenLigenuService(new RestTemplateBuilder(), "http://localhost/",
+                Duration.ofSeconds(1), Duration.ofSeconds(1), new TariffEngine(new TariffProperties()));
+        date = LocalDate.of(2025, 9, 21);
+        payload = BenchmarkData.dayPayload(date, slots).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public List<ElectricityPrice> buffered() throws IOException {
+        // The RestTemplate String path decodes the whole body before parsing
+        return service.parseBuffered(new String(payload, StandardCharsets.UTF_8), "DK1", date);
+    }
+
+    @Benchmark
+    public List<ElectricityPrice> streaming() throws IOException {
+        return service.parseStreaming(new ByteArrayInputStream(payload), "DK1", date);
+    }
+}
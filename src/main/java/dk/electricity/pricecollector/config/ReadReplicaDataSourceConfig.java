@@ -0,0 +1,90 @@
+package dk.electricity.pricecollector.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replaces the auto-configured DataSource with one that routes read-only transactions to the
+ * configured read replicas (see {@link ReplicaRoutingDataSource}). Without
+ * price-collector.datasource.read-replicas.enabled the single spring.datasource is used as before.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "price-collector.datasource.read-replicas", name = "enabled", havingValue = "true")
+public class ReadReplicaDataSourceConfig {
+
+    private ReplicaRoutingDataSource routingDataSource;
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    /**
+     * The routing itself, also injected into the write paths that record the WAL position
+     * replicas have to reach
+     */
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(HikariDataSource primaryDataSource, DataSourceProperties properties,
+                                                             ReadReplicaProperties replicaProperties, MeterRegistry meterRegistry) {
+        if (replicaProperties.getUrls().isEmpty()) {
+            throw new IllegalStateException("price-collector.datasource.read-replicas.enabled is set but no urls are configured");
+        }
+        List<DataSource> replicas = new ArrayList<>();
+        for (String url : replicaProperties.getUrls()) {
+            HikariDataSource replica = new HikariDataSource();
+            replica.setPoolName("replica-" + replicas.size());
+            replica.setJdbcUrl(url);
+            replica.setUsername(replicaProperties.getUsername() != null ? replicaProperties.getUsername() : properties.determineUsername());
+            replica.setPassword(replicaProperties.getPassword() != null ? replicaProperties.getPassword() : properties.determinePassword());
+            replica.setDriverClassName(properties.determineDriverClassName());
+            replica.setMaximumPoolSize(replicaProperties.getMaximumPoolSize());
+            replica.setReadOnly(true);
+            replica.setMetricRegistry(meterRegistry);
+            // Start even while a replica is down; it is skipped until its replay position can be read
+            replica.setInitializationFailTimeout(-1);
+            replicas.add(replica);
+        }
+
+        routingDataSource = new ReplicaRoutingDataSource(primaryDataSource, replicas);
+        routingDataSource.afterPropertiesSet();
+        routingDataSource.refreshReplayPositions();
+        for (int i = 0; i < replicas.size(); i++) {
+            int replica = i;
+            Gauge.builder("pricecollector.replica.lag", routingDataSource, routing -> routing.getLagBytes(replica))
+                .description("WAL bytes the replica has yet to replay before it serves reads; -1 when unavailable")
+                .baseUnit("bytes")
+                .tag("replica", String.valueOf(replica))
+                .register(meterRegistry);
+        }
+        return routingDataSource;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+
+    @Scheduled(fixedDelayString = "${price-collector.datasource.read-replicas.lag-check-interval:PT5S}")
+    public void refreshReplayPositions() {
+        if (routingDataSource != null) {
+            routingDataSource.refreshReplayPositions();
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package dk.electricity.pricecollector.config;
+
+import dk.electricity.pricecollector.repository.RegionRepository;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * Stores ElectricityPrice.region as the region's SMALLINT id. Also applies to JPQL and derived
+ * query parameters, so those keep comparing against region codes. Hibernate creates it through
+ * Spring's bean container, which supplies the repository.
+ */
+@Converter
+public class RegionIdConverter implements AttributeConverter<String, Short> {
+
+    private final RegionRepository regionRepository;
+
+    public RegionIdConverter(RegionRepository regionRepository) {
+        this.regionRepository = regionRepository;
+    }
+
+    @Override
+    public Short convertToDatabaseColumn(String region) {
+        return region == null ? null : regionRepository.idOf(region);
+    }
+
+    @Override
+    public String convertToEntityAttribute(Short regionId) {
+        return regionId == null ? null : regionRepository.codeOf(regionId);
+    }
+}
@@ -0,0 +1,50 @@
+package dk.electricity.pricecollector.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bidding zones the collector fetches, caches and serves, from price-collector.regions.
+ * Zones are fetched from price-collector.api.base-url unless they name their own base URL,
+ * which must serve the same JSON format (prices in DKK_per_kWh).
+ */
+@Component
+@ConfigurationProperties(prefix = "price-collector.regions")
+public class RegionProperties {
+
+    /** Zone of the dashboard at / and of API requests that name no region */
+    private String defaultRegion = "DK1";
+
+    private List<Zone> zones = new ArrayList<>(List.of(
+        new Zone("DK1", "West Denmark"),
+        new Zone("DK2", "East Denmark")));
+
+    public String getDefaultRegion() { return defaultRegion; }
+    public void setDefaultRegion(String defaultRegion) { this.defaultRegion = defaultRegion; }
+    public List<Zone> getZones() { return zones; }
+    public void setZones(List<Zone> zones) { this.zones = zones; }
+
+    public static class Zone {
+        private String code;
+        private String name;
+        private String baseUrl;
+
+        public Zone() {
+        }
+
+        public Zone(String code, String name) {
+            this.code = code;
+            this.name = name;
+        }
+
+        public String getCode() { return code; }
+        public void setCode(String code) { this.code = code; }
+        public String getName() { return name; }
+        public void setName(String name) { this.name = name; }
+        public String getBaseUrl() { return baseUrl; }
+        public void setBaseUrl(String baseUrl) { this.baseUrl = baseUrl; }
+    }
+}
@@ -0,0 +1,151 @@
+package dk.electricity.pricecollector.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Routes read-only transactions to PostgreSQL streaming replicas and everything else
+ * (read-write transactions, ingestion, retention, Flyway, non-transactional access) to the primary.
+ *
+ * A replica only serves reads once it has replayed the primary's WAL up to the position recorded
+ * after the last committed price write (see {@link #primaryWrittenAfterCommit()}), so right after
+ * ingestion stores new prices for today or tomorrow, reads go to the primary until the replicas
+ * have caught up. Replicas that cannot be
+ * reached or are not in recovery are skipped. Must be wrapped in a LazyConnectionDataSourceProxy,
+ * so the connection is chosen once the transaction's read-only flag is known.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+    private static final String PRIMARY = "primary";
+    private static final String PRIMARY_POSITION_SQL = "SELECT pg_wal_lsn_diff(pg_current_wal_lsn(), '0/0')::bigint";
+    private static final String REPLAY_POSITION_SQL = "SELECT pg_wal_lsn_diff(pg_last_wal_replay_lsn(), '0/0')::bigint";
+    private static final long UNAVAILABLE = -1;
+
+    private final DataSource primary;
+    private final List<DataSource> replicas;
+    private final AtomicLongArray replayPositions;
+    private final AtomicLong requiredPosition = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicInteger nextReplica = new AtomicInteger();
+
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas) {
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+        this.replayPositions = new AtomicLongArray(replicas.size());
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        for (int i = 0; i < replicas.size(); i++) {
+            targets.put(i, replicas.get(i));
+            replayPositions.set(i, UNAVAILABLE);
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly() || replicas.isEmpty()) {
+            return PRIMARY;
+        }
+        long required = requiredPosition.get();
+        int start = Math.floorMod(nextReplica.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            int replica = (start + i) % replicas.size();
+            if (replayPositions.get(replica) >= required) {
+                return replica;
+            }
+        }
+        return PRIMARY;
+    }
+
+    /**
+     * Make replicas reach the current transaction's writes before they serve reads again.
+     * Called by the write paths that actually changed rows; records the position right away when
+     * there is no transaction, e.g. for JdbcTemplate writes in auto-commit.
+     */
+    public void primaryWrittenAfterCommit() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    primaryWritten();
+                }
+            });
+        } else {
+            primaryWritten();
+        }
+    }
+
+    /**
+     * Record the primary's current WAL position as the one replicas have to reach
+     */
+    public void primaryWritten() {
+        try {
+            long position = queryPosition(primary, PRIMARY_POSITION_SQL);
+            requiredPosition.accumulateAndGet(position, (current, next) -> current == Long.MAX_VALUE ? next : Math.max(current, next));
+        } catch (SQLException e) {
+            logger.warn("Could not read the primary's WAL position, reads stay on the primary: {}", e.getMessage());
+            requiredPosition.set(Long.MAX_VALUE);
+        }
+    }
+
+    /**
+     * Re-read how far every replica has replayed the primary's WAL
+     */
+    public void refreshReplayPositions() {
+        if (requiredPosition.get() == Long.MAX_VALUE) {
+            primaryWritten();
+        }
+        for (int i = 0; i < replicas.size(); i++) {
+            long position;
+            try {
+                position = queryPosition(replicas.get(i), REPLAY_POSITION_SQL);
+            } catch (SQLException e) {
+                position = UNAVAILABLE;
+            }
+            long previous = replayPositions.getAndSet(i, position);
+            if ((previous == UNAVAILABLE) != (position == UNAVAILABLE)) {
+                logger.info("Read replica {} is {}", i, position == UNAVAILABLE ? "unavailable" : "available");
+            }
+        }
+    }
+
+    /**
+     * Bytes of WAL the replicas still have to replay, e.g. for monitoring; negative when unavailable
+     */
+    public long getLagBytes(int replica) {
+        long position = replayPositions.get(replica);
+        long required = requiredPosition.get();
+        return position == UNAVAILABLE || required == Long.MAX_VALUE ? UNAVAILABLE : Math.max(0, required - position);
+    }
+
+    public int getReplicaCount() {
+        return replicas.size();
+    }
+
+    private static long queryPosition(DataSource dataSource, String sql) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(sql)) {
+            rs.next();
+            long position = rs.getLong(1);
+            // NULL for a server that is not a streaming replica
+            return rs.wasNull() ? UNAVAILABLE : position;
+        }
+    }
+}
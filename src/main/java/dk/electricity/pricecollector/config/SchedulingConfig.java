@@ -0,0 +1,15 @@
+package dk.electricity.pricecollector.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Runs the @Scheduled jobs (publication polling, retention, partition maintenance, archive flushes).
+ * price-collector.scheduling.enabled=false switches them all off, e.g. for the ingest benchmark.
+ */
+@Configuration
+@EnableScheduling
+@ConditionalOnProperty(prefix = "price-collector.scheduling", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class SchedulingConfig {
+}
@@ -1,9 +1,12 @@
 package dk.electricity.pricecollector.config;
 
+import dk.electricity.pricecollector.service.ElectricityPriceService;
 import dk.electricity.pricecollector.service.ElprisenLigenuService;
+import dk.electricity.pricecollector.service.RegionRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
@@ -12,9 +15,13 @@ import java.time.LocalDate;
 
 /**
  * Component that automatically fetches electricity price data when the application starts.
- * Only fetches data if it's not already present in the database.
+ * Only fetches data if it's not already present: days the database already holds completely are
+ * not requested again. Checked against the database rather than the price series, which may have
+ * been loaded from a stale archive that is still being reconciled.
+ * Switched off with price-collector.startup-fetch.enabled=false.
  */
 @Component
+@ConditionalOnProperty(prefix = "price-collector.startup-fetch", name = "enabled", havingValue = "true", matchIfMissing = true)
 public class StartupDataInitializer {
     
     private static final Logger logger = LoggerFactory.getLogger(StartupDataInitializer.class);
@@ -22,6 +29,12 @@ public class StartupDataInitializer {
     @Autowired
     private ElprisenLigenuService elprisenLigenuService;
     
+    @Autowired
+    private RegionRegistry regionRegistry;
+    
+    @Autowired
+    private ElectricityPriceService priceService;
+    
     /**
      * This method is called when the application is fully started and ready to serve requests.
      * It will attempt to fetch today's and tomorrow's electricity prices if they don't already exist.
@@ -33,12 +46,20 @@ public class StartupDataInitializer {
         try {
             // Fetch today's prices
             logger.info("Checking and fetching today's electricity prices...");
-            elprisenLigenuService.fetchAndSaveTodaysPrices();
+            if (isStored(LocalDate.now())) {
+                logger.info("Today's prices are already stored, skipping fetch");
+            } else {
+                elprisenLigenuService.fetchAndSaveTodaysPrices();
+            }
             
             // Fetch tomorrow's prices (if available)
             logger.info("Checking and fetching tomorrow's electricity prices...");
             try {
-                elprisenLigenuService.fetchAndSaveTomorrowsPrices();
+                if (isStored(LocalDate.now().plusDays(1))) {
+                    logger.info("Tomorrow's prices are already stored, skipping fetch");
+                } else {
+                    elprisenLigenuService.fetchAndSaveTomorrowsPrices();
+                }
             } catch (Exception e) {
                 // Tomorrow's prices might not be available yet, which is normal
                 logger.info("Tomorrow's prices not available yet (normal if before 13:00 CET): {}", e.getMessage());
@@ -52,4 +73,8 @@ public class StartupDataInitializer {
             // Users can manually fetch prices later if needed
         }
     }
+    
+    private boolean isStored(LocalDate date) {
+        return regionRegistry.getCodes().stream().allMatch(region -> priceService.hasCompleteDay(region, date));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,87 @@
+package dk.electricity.pricecollector.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tariff schedules per grid company from price-collector.tariffs.
+ * Every company has versions that apply from their valid-from date until the next version;
+ * a version has flat components plus an optional time-of-use grid tariff made of bands by
+ * month and local hour. All amounts are DKK per kWh.
+ */
+@Component
+@ConfigurationProperties(prefix = "price-collector.tariffs")
+public class TariffProperties {
+
+    /** Company whose tariffs are stored with ingested prices and used when a request names none */
+    private String defaultCompany = "default";
+
+    private Map<String, Company> companies = new LinkedHashMap<>();
+
+    public String getDefaultCompany() { return defaultCompany; }
+    public void setDefaultCompany(String defaultCompany) { this.defaultCompany = defaultCompany; }
+    public Map<String, Company> getCompanies() { return companies; }
+    public void setCompanies(Map<String, Company> companies) { this.companies = companies; }
+
+    public static class Company {
+        private String name;
+        /** Price area the company's customers are in, one of price-collector.regions */
+        private String region;
+        private List<Version> versions = new ArrayList<>();
+
+        public String getName() { return name; }
+        public void setName(String name) { this.name = name; }
+        public String getRegion() { return region; }
+        public void setRegion(String region) { this.region = region; }
+        public List<Version> getVersions() { return versions; }
+        public void setVersions(List<Version> versions) { this.versions = versions; }
+    }
+
+    public static class Version {
+        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+        private LocalDate validFrom;
+        private BigDecimal transmissionTariff = BigDecimal.ZERO;
+        private BigDecimal systemTariff = BigDecimal.ZERO;
+        private BigDecimal electricityTax = BigDecimal.ZERO;
+        private List<Band> gridTariff = new ArrayList<>();
+
+        public LocalDate getValidFrom() { return validFrom; }
+        public void setValidFrom(LocalDate validFrom) { this.validFrom = validFrom; }
+        public BigDecimal getTransmissionTariff() { return transmissionTariff; }
+        public void setTransmissionTariff(BigDecimal transmissionTariff) { this.transmissionTariff = transmissionTariff; }
+        public BigDecimal getSystemTariff() { return systemTariff; }
+        public void setSystemTariff(BigDecimal systemTariff) { this.systemTariff = systemTariff; }
+        public BigDecimal getElectricityTax() { return electricityTax; }
+        public void setElectricityTax(BigDecimal electricityTax) { this.electricityTax = electricityTax; }
+        public List<Band> getGridTariff() { return gridTariff; }
+        public void setGridTariff(List<Band> gridTariff) { this.gridTariff = gridTariff; }
+    }
+
+    /**
+     * Grid tariff rate for local hours [from-hour, to-hour) in the given months (all months when empty).
+     * The first matching band wins; hours no band covers have no grid tariff.
+     */
+    public static class Band {
+        private List<Integer> months = new ArrayList<>();
+        private int fromHour = 0;
+        private int toHour = 24;
+        private BigDecimal rate = BigDecimal.ZERO;
+
+        public List<Integer> getMonths() { return months; }
+        public void setMonths(List<Integer> months) { this.months = months; }
+        public int getFromHour() { return fromHour; }
+        public void setFromHour(int fromHour) { this.fromHour = fromHour; }
+        public int getToHour() { return toHour; }
+        public void setToHour(int toHour) { this.toHour = toHour; }
+        public BigDecimal getRate() { return rate; }
+        public void setRate(BigDecimal rate) { this.rate = rate; }
+    }
+}
@@ -1,198 +1,189 @@
 package dk.electricity.pricecollector.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dk.electricity.pricecollector.config.TariffProperties;
 import dk.electricity.pricecollector.model.ElectricityPrice;
+import dk.electricity.pricecollector.service.BulkPriceFetchService;
+import dk.electricity.pricecollector.service.CheapestWindowService;
+import dk.electricity.pricecollector.service.DashboardModel;
+import dk.electricity.pricecollector.service.DashboardView;
+import dk.electricity.pricecollector.service.DayPriceCache;
+import dk.electricity.pricecollector.service.DaySnapshot;
 import dk.electricity.pricecollector.service.ElectricityPriceService;
 import dk.electricity.pricecollector.service.ElprisenLigenuService;
+import dk.electricity.pricecollector.service.PriceExportService;
+import dk.electricity.pricecollector.service.PriceUpdateBroadcaster;
+import dk.electricity.pricecollector.service.RegionRegistry;
+import dk.electricity.pricecollector.service.RenderedPageCache;
+import dk.electricity.pricecollector.service.TariffEngine;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.thymeleaf.context.WebContext;
+import org.thymeleaf.spring6.ISpringTemplateEngine;
+import org.thymeleaf.web.IWebExchange;
+import org.thymeleaf.web.servlet.JakartaServletWebApplication;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 @Controller
 public class DashboardController {
     
+    private static final Duration MAX_AGE_AWAITING_PUBLICATION = Duration.ofMinutes(1);
+    private static final int MAX_SCHEDULE_QUERIES = 10_000;
+    
     @Autowired
     private ElectricityPriceService priceService;
     
     @Autowired
     private ElprisenLigenuService elprisenLigenuService;
     
+    @Autowired
+    private BulkPriceFetchService bulkPriceFetchService;
+    
+    @Autowired
+    private PriceUpdateBroadcaster priceUpdateBroadcaster;
+    
+    @Autowired
+    private CheapestWindowService cheapestWindowService;
+    
+    @Autowired
+    private TariffEngine tariffEngine;
+    
+    @Autowired
+    private PriceExportService priceExportService;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private RenderedPageCache renderedPageCache;
+    
+    @Autowired
+    private RegionRegistry regionRegistry;
+    
+    @Autowired
+    private ISpringTemplateEngine templateEngine;
+    
+    // Time of day the day-ahead prices for tomorrow are usually published
+    @Value("${price-collector.api.publication-time:13:00}")
+    private LocalTime publicationTime;
+    
     @GetMapping("/")
-    public String dashboard(Model model) {
-        model.addAttribute("title", "Dashboard");
-        
-        // Get summary data for DK1 (West Denmark)
-        ElectricityPriceService.PriceSummary summary = priceService.getTodaysSummary("DK1");
-        model.addAttribute("summary", summary);
-        
-        // Get recent prices for chart
-        List<ElectricityPrice> recentPrices = priceService.getRecentPrices("DK1", 24);
-        model.addAttribute("recentPrices", recentPrices);
-        
-        // Try to get today's prices first, fall back to tomorrow's if empty
-        List<ElectricityPrice> displayPrices = priceService.getTodaysPrices("DK1");
-        String pricesPeriod = "Today";
-        
-        if (displayPrices.isEmpty()) {
-            displayPrices = priceService.getTomorrowsPrices("DK1");
-            pricesPeriod = "Tomorrow";
-        }
-        
-        model.addAttribute("todaysPrices", displayPrices);
-        model.addAttribute("pricesPeriod", pricesPeriod);
-        
-        // Create a list for all 24 hours (null for missing hours)
-        List<ElectricityPrice> hourlyPricesList = new ArrayList<>();
-        for (int i = 0; i < 24; i++) {
-            hourlyPricesList.add(null);
-        }
-        for (ElectricityPrice price : displayPrices) {
-            int hour = price.getHour(); // Use the hour column directly
-            if (hour >= 0 && hour < 24) {
-                hourlyPricesList.set(hour, price);
-            }
-        }
-        model.addAttribute("hourlyPricesList", hourlyPricesList);
-        
-        // Also create a map for template compatibility
-        Map<Integer, ElectricityPrice> hourlyPrices = new HashMap<>();
-        for (ElectricityPrice price : displayPrices) {
-            int hour = price.getHour();
-            hourlyPrices.put(hour, price);
-        }
-        model.addAttribute("hourlyPrices", hourlyPrices);
-        
-        // Find the 8 lowest spot prices for green gradient highlighting
-        List<ElectricityPrice> sortedBySpotPrice = displayPrices.stream()
-            .sorted((a, b) -> a.getSpotPrice().compareTo(b.getSpotPrice()))
-            .collect(Collectors.toList());
-        
-        // Create ranking for all hours (1 = lowest spot price, 24 = highest)
-        Map<Integer, Integer> spotPriceRanks = new HashMap<>();
-        Map<Integer, String> rowClasses = new HashMap<>();
-        
-        for (int i = 0; i < sortedBySpotPrice.size(); i++) {
-            int hour = sortedBySpotPrice.get(i).getHour();
-            int rank = i + 1; // rank 1-24, where 1 is lowest
-            spotPriceRanks.put(hour, rank);
-            
-            // Green background for 8 lowest prices only
-            if (i < 8) {
-                String bgClass;
-                if (i == 0) bgClass = "bg-green-300"; // lowest price
-                else if (i == 1) bgClass = "bg-green-200"; // 2nd lowest
-                else if (i <= 3) bgClass = "bg-green-100"; // 3rd-4th lowest
-                else bgClass = "bg-green-50"; // 5th-8th lowest
-                
-                rowClasses.put(hour, bgClass);
-            }
+    @ResponseBody
+    public ResponseEntity<byte[]> dashboard(HttpServletRequest request, HttpServletResponse response) {
+        return regionDashboard(regionRegistry.getDefaultRegion(), request, response);
+    }
+    
+    @GetMapping("/regions/{region}")
+    @ResponseBody
+    public ResponseEntity<byte[]> regionDashboard(@PathVariable String region,
+                                                  HttpServletRequest request, HttpServletResponse response) {
+        if (!regionRegistry.isConfigured(region)) {
+            return ResponseEntity.notFound().build();
         }
-        
-        model.addAttribute("spotPriceRanks", spotPriceRanks);
-        model.addAttribute("rowClasses", rowClasses);
-        
-        // Add current hour for highlighting
-        model.addAttribute("currentHour", LocalDateTime.now().getHour());
-        
-        return "dashboard";
+        // Yesterday, today and tomorrow for the region, at most one database query
+        return dashboardPage(DashboardModel.TODAY, priceService.getDashboardView(region), request, response);
     }
     
     @GetMapping("/tomorrow")
-    public String tomorrow(Model model) {
-        model.addAttribute("title", "Tomorrow");
-        
-        // Get summary data for DK1 (West Denmark) - tomorrow's data
-        ElectricityPriceService.PriceSummary summary = priceService.getTomorrowsSummary("DK1");
-        model.addAttribute("summary", summary);
-        
-        // Get recent prices for chart (still use recent for context)
-        List<ElectricityPrice> recentPrices = priceService.getRecentPrices("DK1", 24);
-        model.addAttribute("recentPrices", recentPrices);
-        
-        // Get tomorrow's prices
-        List<ElectricityPrice> displayPrices = priceService.getTomorrowsPrices("DK1");
-        String pricesPeriod = "Tomorrow";
-        
-        // If no tomorrow prices, try today as fallback
-        if (displayPrices.isEmpty()) {
-            displayPrices = priceService.getTodaysPrices("DK1");
-            pricesPeriod = "Today (Tomorrow not available)";
-        }
-        
-        model.addAttribute("todaysPrices", displayPrices); // Keep same attribute name for template compatibility
-        model.addAttribute("pricesPeriod", pricesPeriod);
-        
-        // Create a list for all 24 hours (null for missing hours)
-        List<ElectricityPrice> hourlyPricesList = new ArrayList<>();
-        for (int i = 0; i < 24; i++) {
-            hourlyPricesList.add(null);
+    @ResponseBody
+    public ResponseEntity<byte[]> tomorrow(HttpServletRequest request, HttpServletResponse response) {
+        return regionTomorrow(regionRegistry.getDefaultRegion(), request, response);
+    }
+    
+    @GetMapping("/regions/{region}/tomorrow")
+    @ResponseBody
+    public ResponseEntity<byte[]> regionTomorrow(@PathVariable String region,
+                                                 HttpServletRequest request, HttpServletResponse response) {
+        if (!regionRegistry.isConfigured(region)) {
+            return ResponseEntity.notFound().build();
         }
-        for (ElectricityPrice price : displayPrices) {
-            int hour = price.getHour(); // Use the hour column directly
-            if (hour >= 0 && hour < 24) {
-                hourlyPricesList.set(hour, price);
-            }
+        return dashboardPage(DashboardModel.TOMORROW, priceService.getDashboardView(region), request, response);
+    }
+    
+    /**
+     * Serve dashboard.html from the rendered page cache. The page is only rendered when it is missing
+     * for the data versions of the view's days and the current price interval; clients accepting gzip
+     * get the pre-compressed bytes, and the ETag answers revalidations with 304 Not Modified.
+     */
+    private ResponseEntity<byte[]> dashboardPage(String page, DashboardView view, HttpServletRequest request,
+                                                 HttpServletResponse response) {
+        DaySnapshot today = view.getToday();
+        LocalDateTime interval = nextIntervalStart(view.getNow(), today.getResolutionMinutes())
+            .minusMinutes(today.getResolutionMinutes());
+        String dataVersion = view.getYesterday().getVersion() + "/" + today.getVersion() + "/" + view.getTomorrow().getVersion();
+        RenderedPageCache.RenderedPage rendered = renderedPageCache.get(
+            new RenderedPageCache.PageKey(page, view.getRegion(), dataVersion, interval), () -> {
+                String region = view.getRegion();
+                Map<String, Object> model = DashboardModel.of(page, view, regionRegistry.getName(region),
+                    regionRegistry.getZones(), region.equals(regionRegistry.getDefaultRegion()));
+                IWebExchange exchange = JakartaServletWebApplication.buildApplication(request.getServletContext())
+                    .buildExchange(request, response);
+                return templateEngine.process("dashboard", new WebContext(exchange, request.getLocale(), model));
+            });
+        
+        boolean gzip = acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+            .contentType(new MediaType(MediaType.TEXT_HTML, StandardCharsets.UTF_8))
+            .cacheControl(CacheControl.noCache())
+            .varyBy(HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            return builder.eTag("\"" + rendered.getETag() + "-gzip\"")
+                .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                .body(rendered.getGzip());
         }
-        model.addAttribute("hourlyPricesList", hourlyPricesList);
-        
-        // Also create a map for template compatibility
-        Map<Integer, ElectricityPrice> hourlyPrices = new HashMap<>();
-        for (ElectricityPrice price : displayPrices) {
-            int hour = price.getHour();
-            hourlyPrices.put(hour, price);
+        return builder.eTag("\"" + rendered.getETag() + "\"").body(rendered.getIdentity());
+    }
+    
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
         }
-        model.addAttribute("hourlyPrices", hourlyPrices);
-        
-        // Create ranking for all hours (1 = lowest spot price, 24 = highest)
-        Map<Integer, Integer> spotPriceRanks = new HashMap<>();
-        Map<Integer, String> rowClasses = new HashMap<>();
-        
-        if (!displayPrices.isEmpty()) {
-            List<ElectricityPrice> sortedBySpotPrice = displayPrices.stream()
-                .sorted((a, b) -> a.getSpotPrice().compareTo(b.getSpotPrice()))
-                .collect(Collectors.toList());
-            
-            for (int i = 0; i < sortedBySpotPrice.size(); i++) {
-                int hour = sortedBySpotPrice.get(i).getHour();
-                int rank = i + 1; // rank 1-24, where 1 is lowest
-                spotPriceRanks.put(hour, rank);
-                
-                // Green background for 8 lowest prices only
-                if (i < 8) {
-                    String bgClass;
-                    if (i == 0) bgClass = "bg-green-300"; // lowest price
-                    else if (i == 1) bgClass = "bg-green-200"; // 2nd lowest
-                    else if (i <= 3) bgClass = "bg-green-100"; // 3rd-4th lowest
-                    else bgClass = "bg-green-50"; // 5th-8th lowest
-                    
-                    rowClasses.put(hour, bgClass);
-                }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                return parts.length < 2 || !parts[1].replace(" ", "").matches("q=0(\\.0*)?");
             }
         }
-        
-        model.addAttribute("spotPriceRanks", spotPriceRanks);
-        model.addAttribute("rowClasses", rowClasses);
-        
-        // Add current hour for highlighting (even though it's tomorrow data)
-        model.addAttribute("currentHour", LocalDateTime.now().getHour());
-        
-        return "dashboard"; // Reuse the same template
+        return false;
     }
     
     @GetMapping("/prices")
-    public String prices(Model model, @RequestParam(defaultValue = "DK1") String region) {
+    public String prices(Model model, @RequestParam(required = false) String region) {
+        region = regionOrDefault(region);
         model.addAttribute("title", "Electricity Prices");
         model.addAttribute("selectedRegion", region);
+        model.addAttribute("regions", regionRegistry.getZones());
         
         // Get today's prices
         List<ElectricityPrice> todaysPrices = priceService.getTodaysPrices(region);
@@ -208,7 +199,8 @@ public class DashboardController {
     // HTMX endpoints
     
     @GetMapping("/api/current-price")
-    public String getCurrentPrice(Model model, @RequestParam(defaultValue = "DK1") String region) {
+    public String getCurrentPrice(Model model, @RequestParam(required = false) String region) {
+        region = regionOrDefault(region);
         ElectricityPrice currentPrice = priceService.getCurrentPrice(region).orElse(null);
         model.addAttribute("currentPrice", currentPrice);
         model.addAttribute("region", region);
@@ -216,7 +208,8 @@ public class DashboardController {
     }
     
     @GetMapping("/api/todays-prices")
-    public String getTodaysPrices(Model model, @RequestParam(defaultValue = "DK1") String region) {
+    public String getTodaysPrices(Model model, @RequestParam(required = false) String region) {
+        region = regionOrDefault(region);
         List<ElectricityPrice> todaysPrices = priceService.getTodaysPrices(region);
         model.addAttribute("todaysPrices", todaysPrices);
         model.addAttribute("region", region);
@@ -224,7 +217,8 @@ public class DashboardController {
     }
     
     @GetMapping("/api/tomorrows-prices")
-    public String getTomorrowsPrices(Model model, @RequestParam(defaultValue = "DK1") String region) {
+    public String getTomorrowsPrices(Model model, @RequestParam(required = false) String region) {
+        region = regionOrDefault(region);
         List<ElectricityPrice> tomorrowsPrices = priceService.getTomorrowsPrices(region);
         model.addAttribute("tomorrowsPrices", tomorrowsPrices);
         model.addAttribute("region", region);
@@ -232,7 +226,8 @@ public class DashboardController {
     }
     
     @GetMapping("/api/price-summary")
-    public String getPriceSummary(Model model, @RequestParam(defaultValue = "DK1") String region) {
+    public String getPriceSummary(Model model, @RequestParam(required = false) String region) {
+        region = regionOrDefault(region);
         ElectricityPriceService.PriceSummary summary = priceService.getTodaysSummary(region);
         model.addAttribute("summary", summary);
         return "fragments/price-summary :: price-summary";
@@ -242,20 +237,241 @@ public class DashboardController {
     
     @GetMapping("/api/prices/current.json")
     @ResponseBody
-    public ElectricityPrice getCurrentPriceJson(@RequestParam(defaultValue = "DK1") String region) {
-        return priceService.getCurrentPrice(region).orElse(null);
+    public ResponseEntity<ElectricityPrice> getCurrentPriceJson(@RequestParam(required = false) String region) {
+        region = regionOrDefault(region);
+        LocalDateTime now = LocalDateTime.now();
+        DaySnapshot snapshot = priceService.getDaySnapshot(region, now.toLocalDate());
+        ElectricityPrice currentPrice = snapshot.getPriceAt(now);
+        LocalDateTime nextInterval = nextIntervalStart(now, snapshot.getResolutionMinutes());
+        if (currentPrice == null) {
+            return conditionalResponse(snapshot, "none", snapshot.getLastModified(), untilNextHour(now)).build();
+        }
+        // The current price also changes when a new interval starts, not only when prices are stored
+        LocalDateTime intervalStart = nextInterval.minusMinutes(snapshot.getResolutionMinutes());
+        LocalDateTime lastModified = snapshot.getLastModified() == null || intervalStart.isAfter(snapshot.getLastModified())
+            ? intervalStart : snapshot.getLastModified();
+        return conditionalResponse(snapshot, "i" + currentPrice.getIntervalIndex(), lastModified,
+            Duration.between(now, nextInterval)).body(currentPrice);
     }
     
     @GetMapping("/api/prices/today.json")
     @ResponseBody
-    public List<ElectricityPrice> getTodaysPricesJson(@RequestParam(defaultValue = "DK1") String region) {
-        return priceService.getTodaysPrices(region);
+    public ResponseEntity<List<ElectricityPrice>> getTodaysPricesJson(@RequestParam(required = false) String region) {
+        region = regionOrDefault(region);
+        LocalDateTime now = LocalDateTime.now();
+        DaySnapshot snapshot = priceService.getDaySnapshot(region, now.toLocalDate());
+        return conditionalResponse(snapshot, "day", snapshot.getLastModified(), untilNextHour(now))
+            .body(snapshot.getPrices());
     }
     
     @GetMapping("/api/prices/tomorrow.json")
     @ResponseBody
-    public List<ElectricityPrice> getTomorrowsPricesJson(@RequestParam(defaultValue = "DK1") String region) {
-        return priceService.getTomorrowsPrices(region);
+    public ResponseEntity<List<ElectricityPrice>> getTomorrowsPricesJson(@RequestParam(required = false) String region) {
+        region = regionOrDefault(region);
+        LocalDateTime now = LocalDateTime.now();
+        DaySnapshot snapshot = priceService.getDaySnapshot(region, now.toLocalDate().plusDays(1));
+        // Nothing will change before tomorrow's prices are published
+        LocalDateTime publication = now.toLocalDate().atTime(publicationTime);
+        Duration maxAge = snapshot.isEmpty()
+            ? (now.isBefore(publication) ? Duration.between(now, publication) : MAX_AGE_AWAITING_PUBLICATION)
+            : untilNextHour(now);
+        return conditionalResponse(snapshot, "day", snapshot.getLastModified(), maxAge)
+            .body(snapshot.getPrices());
+    }
+    
+    /**
+     * Strong ETag from the day's data version, Last-Modified and Cache-Control for the JSON price API.
+     * Spring answers 304 Not Modified from these headers before the body is serialized, and the
+     * snapshot comes from the day price cache, so revalidations touch neither the database nor Jackson.
+     */
+    private ResponseEntity.BodyBuilder conditionalResponse(DaySnapshot snapshot, String variant,
+                                                           LocalDateTime lastModified, Duration maxAge) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+            .eTag("\"" + snapshot.getRegion() + "-" + snapshot.getDate() + "-" + snapshot.getVersion() + "-" + variant + "\"")
+            .cacheControl(CacheControl.maxAge(Duration.ofSeconds(Math.max(1, maxAge.toSeconds()))).cachePublic());
+        if (lastModified != null) {
+            response.lastModified(lastModified.atZone(ZoneId.systemDefault()));
+        }
+        return response;
+    }
+    
+    private static Duration untilNextHour(LocalDateTime now) {
+        return Duration.between(now, now.truncatedTo(ChronoUnit.HOURS).plusHours(1));
+    }
+    
+    private static LocalDateTime nextIntervalStart(LocalDateTime now, int resolutionMinutes) {
+        int intervalsIntoHour = now.getMinute() / resolutionMinutes;
+        return now.truncatedTo(ChronoUnit.HOURS).plusMinutes((long) (intervalsIntoHour + 1) * resolutionMinutes);
+    }
+    
+    @GetMapping("/api/prices/hourly.json")
+    @ResponseBody
+    public ResponseEntity<?> getHourlyPricesJson(
+            @RequestParam(required = false) String region,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        region = regionOrDefault(region);
+        if (to.isBefore(from)) {
+            return ResponseEntity.badRequest().body(Map.of("error", "'to' must not be before 'from'"));
+        }
+        return ResponseEntity.ok(priceService.getHourlyAggregates(region, from, to));
+    }
+    
+    @GetMapping("/api/prices/statistics.json")
+    @ResponseBody
+    public ResponseEntity<?> getPriceStatisticsJson(
+            @RequestParam(required = false) String region,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "10,50,90") double[] percentiles) {
+        region = regionOrDefault(region);
+        if (to.isBefore(from)) {
+            return ResponseEntity.badRequest().body(Map.of("error", "'to' must not be before 'from'"));
+        }
+        return ResponseEntity.ok(priceService.getPriceStatistics(region, from, to, percentiles));
+    }
+    
+    @GetMapping("/api/prices/compare.json")
+    @ResponseBody
+    public ResponseEntity<?> comparePricesJson(
+            @RequestParam(required = false) List<String> regions,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "true") boolean slots) {
+        if (to.isBefore(from)) {
+            return ResponseEntity.badRequest().body(Map.of("error", "'to' must not be before 'from'"));
+        }
+        List<String> compared = regions != null ? regions.stream().distinct().toList() : regionRegistry.getCodes();
+        if (compared.size() < 2) {
+            return ResponseEntity.badRequest().body(Map.of("error", "At least two regions are needed for a comparison"));
+        }
+        compared.forEach(this::regionOrDefault); // rejects unknown codes
+        return ResponseEntity.ok(priceService.comparePrices(compared, from, to, slots));
+    }
+    
+    // Bulk export of a date range, streamed from the database as CSV, NDJSON or columnar binary
+    @GetMapping("/api/export")
+    @ResponseBody
+    public ResponseEntity<StreamingResponseBody> exportPrices(
+            @RequestParam(required = false) List<String> regions,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "csv") String format) {
+        if (to.isBefore(from)) {
+            return exportError("'to' must not be before 'from'");
+        }
+        PriceExportService.Format exportFormat;
+        try {
+            exportFormat = PriceExportService.Format.parse(format);
+        } catch (IllegalArgumentException e) {
+            return exportError("Unknown export format: " + format);
+        }
+        List<String> exportRegions = regions != null ? regions : regionRegistry.getCodes();
+        for (String region : exportRegions) {
+            if (!regionRegistry.isConfigured(region)) {
+                return exportError("Unknown region: " + region);
+            }
+        }
+        StreamingResponseBody body = out -> priceExportService.export(exportFormat, exportRegions, from, to, out);
+        String filename = "prices-" + from + "-" + to + "." + exportFormat.getFileExtension();
+        return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType(exportFormat.getContentType()))
+            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+            .body(body);
+    }
+    
+    /**
+     * The requested region, or the configured default when none is named; unknown codes such as
+     * region=dk1 are answered with 400 instead of empty data
+     */
+    private String regionOrDefault(String region) {
+        String resolved = region != null ? region : regionRegistry.getDefaultRegion();
+        if (!regionRegistry.isConfigured(resolved)) {
+            throw new UnknownRegionException(resolved);
+        }
+        return resolved;
+    }
+    
+    @ExceptionHandler(UnknownRegionException.class)
+    @ResponseBody
+    public ResponseEntity<Map<String, String>> unknownRegion(UnknownRegionException e) {
+        return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+    }
+    
+    private static class UnknownRegionException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        UnknownRegionException(String region) {
+            super("Unknown region: " + region);
+        }
+    }
+    
+    // Streaming endpoints must declare StreamingResponseBody, so errors are written as JSON through one as well
+    private ResponseEntity<StreamingResponseBody> exportError(String message) {
+        return ResponseEntity.badRequest()
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(out -> objectMapper.writeValue(out, Map.of("error", message)));
+    }
+    
+    // A day's prices with the tariffs of a grid company instead of the stored default tariffs
+    @GetMapping("/api/prices/tariffed.json")
+    @ResponseBody
+    public ResponseEntity<?> getTariffedPricesJson(
+            @RequestParam(required = false) String gridCompany,
+            @RequestParam(required = false) String region,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        String company = gridCompany != null ? gridCompany : tariffEngine.getDefaultCompany();
+        if (!tariffEngine.hasCompany(company)) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Unknown grid company: " + company));
+        }
+        String priceRegion = regionOrDefault(region != null ? region : tariffEngine.getRegion(company));
+        try {
+            return ResponseEntity.ok(priceService.getPricesWithTariffs(priceRegion,
+                date != null ? date : LocalDate.now(), company));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    // Configured grid companies and their tariff versions
+    @GetMapping("/api/tariffs")
+    @ResponseBody
+    public Map<String, TariffProperties.Company> getTariffs() {
+        return tariffEngine.getDefinitions();
+    }
+    
+    // Cheapest contiguous window or cheapest slots within today and tomorrow, for one device
+    @GetMapping("/api/schedule/cheapest")
+    @ResponseBody
+    public CheapestWindowService.ScheduleResult getCheapestSchedule(
+            @RequestParam(required = false) String region,
+            @RequestParam(defaultValue = CheapestWindowService.CONTIGUOUS) String type,
+            @RequestParam Duration duration,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime until,
+            @RequestParam(required = false) String gridCompany) {
+        region = regionOrDefault(region);
+        CheapestWindowService.ScheduleQuery query =
+            new CheapestWindowService.ScheduleQuery(null, region, type, duration, from, until);
+        query.setGridCompany(gridCompany);
+        return cheapestWindowService.findCheapest(List.of(query)).get(0);
+    }
+    
+    // Batch of scheduling queries, e.g. one per device, answered from the same cached prices
+    @PostMapping("/api/schedule/cheapest")
+    @ResponseBody
+    public ResponseEntity<?> postCheapestSchedules(@RequestBody List<CheapestWindowService.ScheduleQuery> queries) {
+        if (queries.size() > MAX_SCHEDULE_QUERIES) {
+            return ResponseEntity.badRequest().body(Map.of("error", "at most " + MAX_SCHEDULE_QUERIES + " queries per request"));
+        }
+        return ResponseEntity.ok(cheapestWindowService.findCheapest(queries));
+    }
+    
+    // Server-sent events when a new price interval starts or new prices are stored
+    @GetMapping(value = "/api/prices/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @ResponseBody
+    public SseEmitter streamPriceUpdates() {
+        return priceUpdateBroadcaster.subscribe();
     }
     
     // Test endpoint to add sample data (for development)
@@ -268,17 +484,17 @@ public class DashboardController {
         for (int i = 0; i < 24; i++) {
             LocalDateTime priceTime = now.plusHours(i);
             
-            // Generate some realistic sample prices for Denmark West (DK1)
+            // Generate some realistic sample prices for the default region
             BigDecimal baseSpotPrice = BigDecimal.valueOf(300 + (Math.random() * 400)); // 300-700 DKK/MWh
             BigDecimal transmissionTariff = BigDecimal.valueOf(58.0); // Fixed transmission tariff
             BigDecimal systemTariff = BigDecimal.valueOf(12.5); // Fixed system tariff
             BigDecimal electricityTax = BigDecimal.valueOf(90.0); // Electricity tax
             
             ElectricityPrice price = new ElectricityPrice(
-                priceTime, baseSpotPrice, transmissionTariff, systemTariff, electricityTax, "DK1"
+                priceTime, baseSpotPrice, transmissionTariff, systemTariff, electricityTax, regionRegistry.getDefaultRegion()
             );
             
-            if (!priceService.priceExists(priceTime, "DK1")) {
+            if (!priceService.priceExists(priceTime, regionRegistry.getDefaultRegion())) {
                 priceService.savePrice(price);
             }
         }
@@ -322,18 +538,43 @@ public class DashboardController {
         }
     }
     
+    // Backfills run in the background, one at a time; poll GET /api/fetch/range for the outcome
+    @PostMapping("/api/fetch/range")
+    @ResponseBody
+    public ResponseEntity<?> fetchPriceRange(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) List<String> regions) {
+        try {
+            return ResponseEntity.accepted().body(bulkPriceFetchService.startRange(from, to,
+                new LinkedHashSet<>(regions != null ? regions : regionRegistry.getCodes())));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    @GetMapping("/api/fetch/range")
+    @ResponseBody
+    public ResponseEntity<BulkPriceFetchService.BulkFetchStatus> getPriceRangeFetchStatus() {
+        BulkPriceFetchService.BulkFetchStatus status = bulkPriceFetchService.getStatus();
+        return status != null ? ResponseEntity.ok(status) : ResponseEntity.noContent().build();
+    }
+    
     @GetMapping("/api/fetch/force-refresh")
     @ResponseBody
     public String forceRefreshTodaysPrices() {
         try {
             // Delete today's existing prices
-            priceService.deletePricesForDate(LocalDateTime.now().toLocalDate(), "DK1");
-            priceService.deletePricesForDate(LocalDateTime.now().toLocalDate(), "DK2");
+            for (String region : regionRegistry.getCodes()) {
+                priceService.deletePricesForDate(LocalDateTime.now().toLocalDate(), region);
+            }
             
             // Fetch fresh data
             elprisenLigenuService.fetchAndSaveTodaysPrices();
             
-            return "Today's electricity prices force-refreshed successfully! All 24 hours should now be available.";
+            return "Today's electricity prices force-refreshed successfully! All intervals should now be available.";
         } catch (Exception e) {
             return "Error force-refreshing prices: " + e.getMessage();
         }
@@ -344,58 +585,40 @@ public class DashboardController {
     @ResponseBody
     public Map<String, Object> debugHourlyPrices() {
         // Get tomorrow's prices
-        List<ElectricityPrice> displayPrices = priceService.getTomorrowsPrices("DK1");
-        
-        // Create hourly map
-        Map<Integer, ElectricityPrice> hourlyPrices = new HashMap<>();
-        for (ElectricityPrice price : displayPrices) {
-            int hour = price.getPriceDateTime().getHour();
-            hourlyPrices.put(hour, price);
-        }
+        DaySnapshot snapshot = priceService.getTomorrowsSnapshot(regionRegistry.getDefaultRegion());
         
         Map<String, Object> debug = new HashMap<>();
-        debug.put("displayPricesCount", displayPrices.size());
-        debug.put("hourlyPricesKeys", hourlyPrices.keySet());
+        debug.put("displayPricesCount", snapshot.getPrices().size());
+        debug.put("hourlyPricesKeys", snapshot.getHourlyPrices().keySet());
         debug.put("currentHour", LocalDateTime.now().getHour());
         
         return debug;
     }
     
+    // Debug endpoint to inspect the day price cache
+    @GetMapping("/api/debug/cache-stats")
+    @ResponseBody
+    public DayPriceCache.CacheStats debugCacheStats() {
+        return priceService.getCacheStats();
+    }
+    
     @GetMapping("/test-prices")
     public String testPrices(Model model) {
         // Use the same logic as the main dashboard
-        List<ElectricityPrice> displayPrices = priceService.getTodaysPrices("DK1");
+        DashboardView view = priceService.getDashboardView(regionRegistry.getDefaultRegion());
+        DaySnapshot snapshot = view.getToday();
         String pricesPeriod = "Today";
         
-        if (displayPrices.isEmpty()) {
-            displayPrices = priceService.getTomorrowsPrices("DK1");
+        if (snapshot.isEmpty()) {
+            snapshot = view.getTomorrow();
             pricesPeriod = "Tomorrow";
         }
         
-        // Create hourly map
-        Map<Integer, ElectricityPrice> hourlyPrices = new HashMap<>();
-        for (ElectricityPrice price : displayPrices) {
-            int hour = price.getPriceDateTime().getHour();
-            hourlyPrices.put(hour, price);
-        }
-        
-        // Create list like the main dashboard
-        List<ElectricityPrice> hourlyPricesList = new ArrayList<>();
-        for (int i = 0; i < 24; i++) {
-            hourlyPricesList.add(null);
-        }
-        for (ElectricityPrice price : displayPrices) {
-            int hour = price.getHour();
-            if (hour >= 0 && hour < 24) {
-                hourlyPricesList.set(hour, price);
-            }
-        }
-        
-        model.addAttribute("displayPrices", displayPrices);
-        model.addAttribute("hourlyPrices", hourlyPrices);
-        model.addAttribute("hourlyPricesList", hourlyPricesList);
+        model.addAttribute("displayPrices", snapshot.getPrices());
+        model.addAttribute("hourlyPrices", snapshot.getHourlyPrices());
+        model.addAttribute("hourlyPricesList", snapshot.getHourlySlots());
         model.addAttribute("pricesPeriod", pricesPeriod);
-        model.addAttribute("currentHour", LocalDateTime.now().getHour());
+        model.addAttribute("currentHour", view.getNow().getHour());
         
         return "test-prices"; // will create this template
     }
@@ -1,5 +1,6 @@
 package dk.electricity.pricecollector.model;
 
+import dk.electricity.pricecollector.config.RegionIdConverter;
 import jakarta.persistence.*;
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -9,8 +10,9 @@ import java.util.Objects;
 @Entity
 @Table(name = "electricity_prices", indexes = {
     @Index(name = "idx_price_datetime", columnList = "priceDateTime"),
-    @Index(name = "idx_region", columnList = "region"),
-    @Index(name = "idx_price_date_region_hour", columnList = "priceDate, region, hour")
+    @Index(name = "idx_price_date_region_hour", columnList = "priceDate, region_id, hour")
+}, uniqueConstraints = {
+    @UniqueConstraint(name = "uk_region_price_date_interval", columnNames = {"region_id", "priceDate", "intervalIndex"})
 })
 public class ElectricityPrice {
     
@@ -27,6 +29,12 @@ public class ElectricityPrice {
     @Column(nullable = false)
     private Integer hour; // Hour of the day (0-23)
     
+    @Column(nullable = false)
+    private Integer intervalIndex; // Interval of the day counted from local midnight (0-95 for quarter hours)
+    
+    @Column(nullable = false)
+    private Integer resolutionMinutes; // Length of the interval: 60 (hourly) or 15 (quarter-hourly)
+    
     @Column(nullable = false, precision = 10, scale = 6)
     private BigDecimal spotPrice; // DKK per kWh
     
@@ -42,8 +50,9 @@ public class ElectricityPrice {
     @Column(nullable = false, precision = 10, scale = 6)
     private BigDecimal totalPrice; // Total including all tariffs and taxes
     
-    @Column(nullable = false, length = 10)
-    private String region; // DK1 (West Denmark) or DK2 (East Denmark)
+    @Convert(converter = RegionIdConverter.class)
+    @Column(name = "region_id", nullable = false)
+    private String region; // Bidding zone code, e.g. DK1 (West Denmark); stored as the SMALLINT id from regions
     
     @Column(nullable = false)
     private LocalDateTime createdAt;
@@ -86,10 +95,20 @@ public class ElectricityPrice {
         calculateTotalPrice();
     }
     
+    public ElectricityPrice(LocalDateTime priceDateTime, LocalDate priceDate, int intervalIndex, int resolutionMinutes,
+                           BigDecimal spotPrice, BigDecimal transmissionTariff, BigDecimal systemTariff,
+                           BigDecimal electricityTax, String region) {
+        this(priceDateTime, priceDate, priceDateTime.getHour(), spotPrice, transmissionTariff, systemTariff,
+             electricityTax, region);
+        this.intervalIndex = intervalIndex;
+        this.resolutionMinutes = resolutionMinutes;
+    }
+    
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
         updatedAt = LocalDateTime.now();
+        fillIntervalDefaults();
         calculateTotalPrice();
     }
     
@@ -99,6 +118,21 @@ public class ElectricityPrice {
         calculateTotalPrice();
     }
     
+    /**
+     * Rows created without interval information are treated as hourly prices
+     */
+    private void fillIntervalDefaults() {
+        if (hour == null) {
+            hour = priceDateTime.getHour();
+        }
+        if (resolutionMinutes == null) {
+            resolutionMinutes = PriceIntervals.HOURLY;
+        }
+        if (intervalIndex == null) {
+            intervalIndex = PriceIntervals.indexOf(priceDate, priceDateTime, resolutionMinutes);
+        }
+    }
+    
     private void calculateTotalPrice() {
         this.totalPrice = spotPrice
             .add(transmissionTariff)
@@ -139,6 +173,22 @@ public class ElectricityPrice {
         this.hour = hour;
     }
     
+    public Integer getIntervalIndex() {
+        return intervalIndex;
+    }
+    
+    public void setIntervalIndex(Integer intervalIndex) {
+        this.intervalIndex = intervalIndex;
+    }
+    
+    public Integer getResolutionMinutes() {
+        return resolutionMinutes;
+    }
+    
+    public void setResolutionMinutes(Integer resolutionMinutes) {
+        this.resolutionMinutes = resolutionMinutes;
+    }
+    
     public BigDecimal getSpotPrice() {
         return spotPrice;
     }
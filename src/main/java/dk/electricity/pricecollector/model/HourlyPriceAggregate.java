@@ -0,0 +1,25 @@
+package dk.electricity.pricecollector.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Per-hour statistics over the intervals of an hour (one for hourly, four for quarter-hourly data).
+ * Projection for the aggregate query in ElectricityPriceRepository.
+ */
+public interface HourlyPriceAggregate {
+    
+    LocalDate getPriceDate();
+    
+    Integer getHour();
+    
+    Long getIntervalCount();
+    
+    BigDecimal getAvgSpotPrice();
+    
+    BigDecimal getMinSpotPrice();
+    
+    BigDecimal getMaxSpotPrice();
+    
+    BigDecimal getAvgTotalPrice();
+}
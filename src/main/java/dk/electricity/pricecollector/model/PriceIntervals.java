@@ -0,0 +1,58 @@
+package dk.electricity.pricecollector.model;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+/**
+ * Interval arithmetic for day-ahead market time units (MTU).
+ * A day is divided into equally long intervals counted from local midnight in Danish time,
+ * so a quarter-hour day has 96 intervals, or 92/100 on daylight saving transition days.
+ */
+public final class PriceIntervals {
+
+    public static final ZoneId ZONE = ZoneId.of("Europe/Copenhagen");
+    public static final int HOURLY = 60;
+    public static final int QUARTER_HOURLY = 15;
+
+    private PriceIntervals() {
+    }
+
+    /**
+     * Number of intervals in the given day (e.g. 24, 23 or 25 for hourly resolution)
+     */
+    public static int slotsPerDay(LocalDate date, int resolutionMinutes) {
+        ZonedDateTime start = date.atStartOfDay(ZONE);
+        ZonedDateTime end = date.plusDays(1).atStartOfDay(ZONE);
+        return (int) (Duration.between(start, end).toMinutes() / resolutionMinutes);
+    }
+
+    /**
+     * Interval index of the interval starting at the given instant
+     */
+    public static int indexOf(LocalDate date, Instant intervalStart, int resolutionMinutes) {
+        Instant dayStart = date.atStartOfDay(ZONE).toInstant();
+        return (int) Math.floorDiv(Duration.between(dayStart, intervalStart).toMinutes(), resolutionMinutes);
+    }
+
+    /**
+     * Interval index for a local Danish time. On the autumn transition day the repeated
+     * hour resolves to its first (summer time) occurrence.
+     */
+    public static int indexOf(LocalDate date, LocalDateTime localStart, int resolutionMinutes) {
+        return indexOf(date, localStart.atZone(ZONE).toInstant(), resolutionMinutes);
+    }
+
+    /**
+     * Local Danish start time of the given interval
+     */
+    public static LocalDateTime startOf(LocalDate date, int intervalIndex, int resolutionMinutes) {
+        return date.atStartOfDay(ZONE)
+            .plusMinutes((long) intervalIndex * resolutionMinutes)
+            .withZoneSameInstant(ZONE)
+            .toLocalDateTime();
+    }
+}
@@ -0,0 +1,63 @@
+package dk.electricity.pricecollector.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Fixed-point prices in micro-DKK per kWh held in a {@code long}.
+ * Scale 6 matches the NUMERIC(10,6) price columns, so converting a stored price is exact and
+ * comparisons and sums need neither BigDecimal allocation nor scale alignment. The in-memory read
+ * model works on these values; BigDecimal is only used at the JPA and JSON boundaries.
+ */
+public final class PriceMicros {
+
+    public static final int SCALE = 6;
+    public static final long PER_DKK = 1_000_000L;
+
+    private PriceMicros() {
+    }
+
+    /**
+     * Micro-DKK value of a price, rounded half up when it has more than 6 decimals
+     */
+    public static long of(BigDecimal dkk) {
+        return dkk.setScale(SCALE, RoundingMode.HALF_UP).scaleByPowerOfTen(SCALE).longValueExact();
+    }
+
+    public static BigDecimal toBigDecimal(long micros) {
+        return BigDecimal.valueOf(micros, SCALE);
+    }
+
+    public static double toDouble(long micros) {
+        return (double) micros / PER_DKK;
+    }
+
+    /**
+     * Append the price as a plain decimal with 6 fraction digits, like toBigDecimal(micros).toPlainString()
+     * but without allocating
+     */
+    public static StringBuilder appendTo(StringBuilder out, long micros) {
+        if (micros < 0) {
+            out.append('-');
+            micros = -micros;
+        }
+        long fraction = micros % PER_DKK;
+        out.append(micros / PER_DKK).append('.');
+        for (long digit = PER_DKK / 10; digit > 1 && digit > fraction; digit /= 10) {
+            out.append('0');
+        }
+        return out.append(fraction);
+    }
+
+    /**
+     * Average rounded half up (away from zero), like NUMERIC division in PostgreSQL
+     */
+    public static long average(long sum, int count) {
+        long quotient = sum / count;
+        long remainder = sum % count;
+        if (Math.abs(remainder) * 2 >= count) {
+            quotient += Long.signum(sum);
+        }
+        return quotient;
+    }
+}
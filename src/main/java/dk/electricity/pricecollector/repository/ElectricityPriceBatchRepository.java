@@ -0,0 +1,249 @@
+package dk.electricity.pricecollector.repository;
+
+import dk.electricity.pricecollector.model.ElectricityPrice;
+import dk.electricity.pricecollector.model.PriceIntervals;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * JDBC based bulk writes for electricity prices.
+ * Hibernate cannot batch inserts for entities with IDENTITY ids, so ingestion goes through plain
+ * JDBC: one multi-row INSERT ... ON CONFLICT per chunk against the (region_id, price_date, interval_index)
+ * unique key, with the rows passed as arrays.
+ */
+@Repository
+public class ElectricityPriceBatchRepository {
+
+    private static final Logger logger = LoggerFactory.getLogger(ElectricityPriceBatchRepository.class);
+
+    private static final String UPSERT_SQL =
+        "INSERT INTO electricity_prices (price_date_time, price_date, hour, spot_price, transmission_tariff, " +
+        "system_tariff, electricity_tax, total_price, region_id, created_at, updated_at, interval_index, resolution_minutes) " +
+        "SELECT * FROM unnest(?::timestamp[], ?::date[], ?::int[], ?::numeric[], ?::numeric[], ?::numeric[], ?::numeric[], " +
+        "?::numeric[], ?::smallint[], ?::timestamp[], ?::timestamp[], ?::int[], ?::int[]) " +
+        "ON CONFLICT (region_id, price_date, interval_index) DO UPDATE SET " +
+        "price_date_time = EXCLUDED.price_date_time, hour = EXCLUDED.hour, spot_price = EXCLUDED.spot_price, " +
+        "transmission_tariff = EXCLUDED.transmission_tariff, system_tariff = EXCLUDED.system_tariff, " +
+        "electricity_tax = EXCLUDED.electricity_tax, total_price = EXCLUDED.total_price, " +
+        "updated_at = EXCLUDED.updated_at " +
+        // Skip the write entirely when a refetch returns identical prices
+        "WHERE (electricity_prices.price_date_time, electricity_prices.hour, electricity_prices.spot_price, " +
+        "electricity_prices.transmission_tariff, electricity_prices.system_tariff, " +
+        "electricity_prices.electricity_tax, electricity_prices.total_price) IS DISTINCT FROM " +
+        "(EXCLUDED.price_date_time, EXCLUDED.hour, EXCLUDED.spot_price, EXCLUDED.transmission_tariff, " +
+        "EXCLUDED.system_tariff, EXCLUDED.electricity_tax, EXCLUDED.total_price) " +
+        // Only written rows are returned. Inserted rows carry this call's created_at, which an update
+        // never changes (xmax cannot be returned from a partitioned table)
+        "RETURNING (created_at = ?)";
+
+    // A day published at a new resolution replaces the old intervals instead of mixing index spaces
+    private static final String DELETE_OTHER_RESOLUTION_SQL =
+        "DELETE FROM electricity_prices WHERE region_id = ? AND price_date = ? AND resolution_minutes <> ?";
+
+    // One bounded chunk of expired rows; the price_date bound lets PostgreSQL skip retained partitions
+    private static final String DELETE_EXPIRED_CHUNK_SQL =
+        "DELETE FROM electricity_prices WHERE price_date <= ? AND (id, price_date) IN (" +
+        "SELECT id, price_date FROM electricity_prices WHERE price_date <= ? AND price_date_time < ? LIMIT ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final RegionRepository regionRepository;
+    private final int batchSize;
+
+    public ElectricityPriceBatchRepository(JdbcTemplate jdbcTemplate, RegionRepository regionRepository,
+                                           @Value("${price-collector.ingest.batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.regionRepository = regionRepository;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Insert or update prices in chunks of the configured batch size.
+     * Counts come from the rows each statement returns, so they are exact whatever batching the driver does.
+     */
+    public UpsertResult upsert(List<ElectricityPrice> prices) {
+        if (prices.isEmpty()) {
+            return UpsertResult.EMPTY;
+        }
+
+        Map<RegionDate, List<ElectricityPrice>> days = prices.stream()
+            .collect(Collectors.groupingBy(price -> new RegionDate(price.getRegion(), price.getPriceDate())));
+        Map<String, Short> regionIds = new HashMap<>();
+        for (RegionDate day : days.keySet()) {
+            regionIds.computeIfAbsent(day.region(), regionRepository::register);
+        }
+
+        for (Map.Entry<RegionDate, List<ElectricityPrice>> day : days.entrySet()) {
+            int replaced = jdbcTemplate.update(DELETE_OTHER_RESOLUTION_SQL,
+                regionIds.get(day.getKey().region()), day.getKey().date(), resolutionOf(day.getValue().get(0)));
+            if (replaced > 0) {
+                logger.info("Replaced {} prices with a different resolution for region {} on {}",
+                    replaced, day.getKey().region(), day.getKey().date());
+            }
+        }
+
+        // One row per key: a statement cannot update the same row twice, and the last price wins as before
+        Map<PriceKey, ElectricityPrice> unique = new LinkedHashMap<>();
+        for (ElectricityPrice price : prices) {
+            unique.put(new PriceKey(price.getRegion(), price.getPriceDate(), intervalIndexOf(price)), price);
+        }
+        List<ElectricityPrice> rows = new ArrayList<>(unique.values());
+
+        Timestamp createdAt = Timestamp.valueOf(LocalDateTime.now().truncatedTo(ChronoUnit.MICROS));
+        long inserted = 0;
+        long updated = 0;
+        for (int from = 0; from < rows.size(); from += batchSize) {
+            List<ElectricityPrice> chunk = rows.subList(from, Math.min(rows.size(), from + batchSize));
+            long[] written = jdbcTemplate.query(connection -> upsertStatement(connection, chunk, regionIds, createdAt), rs -> {
+                long[] counts = new long[2];
+                while (rs.next()) {
+                    counts[rs.getBoolean(1) ? 0 : 1]++;
+                }
+                return counts;
+            });
+            inserted += written[0];
+            updated += written[1];
+        }
+
+        long unchanged = prices.size() - inserted - updated;
+        return new UpsertResult(inserted, updated, unchanged);
+    }
+
+    /**
+     * Delete at most chunkSize prices that start before the cutoff and return how many were removed.
+     * Meant to be called repeatedly outside a surrounding transaction so each chunk commits on its own.
+     */
+    public int deleteExpiredChunk(LocalDateTime cutoff, int chunkSize) {
+        LocalDate cutoffDate = cutoff.toLocalDate();
+        return jdbcTemplate.update(DELETE_EXPIRED_CHUNK_SQL, cutoffDate, cutoffDate, Timestamp.valueOf(cutoff), chunkSize);
+    }
+
+    // Column arrays of a chunk, expanded back into rows by unnest()
+    private static PreparedStatement upsertStatement(Connection connection, List<ElectricityPrice> chunk,
+                                                     Map<String, Short> regionIds, Timestamp createdAt) throws SQLException {
+        int size = chunk.size();
+        Timestamp[] priceDateTimes = new Timestamp[size];
+        Date[] priceDates = new Date[size];
+        Integer[] hours = new Integer[size];
+        BigDecimal[] spotPrices = new BigDecimal[size];
+        BigDecimal[] transmissionTariffs = new BigDecimal[size];
+        BigDecimal[] systemTariffs = new BigDecimal[size];
+        BigDecimal[] electricityTaxes = new BigDecimal[size];
+        BigDecimal[] totalPrices = new BigDecimal[size];
+        Short[] regions = new Short[size];
+        Timestamp[] updatedAts = new Timestamp[size];
+        Integer[] intervalIndexes = new Integer[size];
+        Integer[] resolutions = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            ElectricityPrice price = chunk.get(i);
+            priceDateTimes[i] = Timestamp.valueOf(price.getPriceDateTime());
+            priceDates[i] = Date.valueOf(price.getPriceDate());
+            hours[i] = price.getHour();
+            spotPrices[i] = price.getSpotPrice();
+            transmissionTariffs[i] = price.getTransmissionTariff();
+            systemTariffs[i] = price.getSystemTariff();
+            electricityTaxes[i] = price.getElectricityTax();
+            totalPrices[i] = price.getTotalPrice();
+            regions[i] = regionIds.get(price.getRegion());
+            updatedAts[i] = Timestamp.valueOf(price.getUpdatedAt());
+            intervalIndexes[i] = intervalIndexOf(price);
+            resolutions[i] = resolutionOf(price);
+        }
+
+        PreparedStatement ps = connection.prepareStatement(UPSERT_SQL);
+        ps.setArray(1, connection.createArrayOf("timestamp", priceDateTimes));
+        ps.setArray(2, connection.createArrayOf("date", priceDates));
+        ps.setArray(3, connection.createArrayOf("int4", hours));
+        ps.setArray(4, connection.createArrayOf("numeric", spotPrices));
+        ps.setArray(5, connection.createArrayOf("numeric", transmissionTariffs));
+        ps.setArray(6, connection.createArrayOf("numeric", systemTariffs));
+        ps.setArray(7, connection.createArrayOf("numeric", electricityTaxes));
+        ps.setArray(8, connection.createArrayOf("numeric", totalPrices));
+        ps.setArray(9, connection.createArrayOf("int2", regions));
+        Timestamp[] createdAts = new Timestamp[size];
+        Arrays.fill(createdAts, createdAt);
+        ps.setArray(10, connection.createArrayOf("timestamp", createdAts));
+        ps.setArray(11, connection.createArrayOf("timestamp", updatedAts));
+        ps.setArray(12, connection.createArrayOf("int4", intervalIndexes));
+        ps.setArray(13, connection.createArrayOf("int4", resolutions));
+        ps.setTimestamp(14, createdAt);
+        return ps;
+    }
+
+    /**
+     * Interval length a price is stored with, hourly when not set
+     */
+    public static int resolutionOf(ElectricityPrice price) {
+        return price.getResolutionMinutes() != null ? price.getResolutionMinutes() : PriceIntervals.HOURLY;
+    }
+
+    /**
+     * Interval index a price is stored with, derived from its start time when not set
+     */
+    public static int intervalIndexOf(ElectricityPrice price) {
+        return price.getIntervalIndex() != null
+            ? price.getIntervalIndex()
+            : PriceIntervals.indexOf(price.getPriceDate(), price.getPriceDateTime(), resolutionOf(price));
+    }
+
+    private record RegionDate(String region, LocalDate date) {
+    }
+
+    private record PriceKey(String region, LocalDate date, int intervalIndex) {
+    }
+
+    /**
+     * Outcome of a batch upsert
+     */
+    public static class UpsertResult {
+        public static final UpsertResult EMPTY = new UpsertResult(0, 0, 0);
+
+        private final long inserted;
+        private final long updated;
+        private final long unchanged;
+
+        public UpsertResult(long inserted, long updated, long unchanged) {
+            this.inserted = inserted;
+            this.updated = updated;
+            this.unchanged = unchanged;
+        }
+
+        public UpsertResult plus(UpsertResult other) {
+            return new UpsertResult(inserted + other.inserted, updated + other.updated, unchanged + other.unchanged);
+        }
+
+        public boolean hasChanges() {
+            return inserted > 0 || updated > 0;
+        }
+
+        // Getters
+        public long getInserted() { return inserted; }
+        public long getUpdated() { return updated; }
+        public long getUnchanged() { return unchanged; }
+        public long getTotal() { return inserted + updated + unchanged; }
+
+        @Override
+        public String toString() {
+            return "UpsertResult{inserted=" + inserted + ", updated=" + updated + ", unchanged=" + unchanged + '}';
+        }
+    }
+}
@@ -1,7 +1,9 @@
 package dk.electricity.pricecollector.repository;
 
 import dk.electricity.pricecollector.model.ElectricityPrice;
+import dk.electricity.pricecollector.model.HourlyPriceAggregate;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -11,46 +13,78 @@ import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
+/**
+ * electricity_prices is range partitioned by month on price_date (V5 migration). Queries filter on
+ * price_date, not only on price_date_time, so PostgreSQL can prune them to the partitions involved.
+ */
 @Repository
 public interface ElectricityPriceRepository extends JpaRepository<ElectricityPrice, Long> {
     
+    // Rows store a SMALLINT region id (V6 migration); native queries look it up once by code.
+    // JPQL and derived queries compare codes, which RegionIdConverter translates to ids.
+    String REGION_ID = "(SELECT id FROM regions WHERE code = :region)";
+    
     // Find prices for a specific region
     List<ElectricityPrice> findByRegionOrderByPriceDateTimeDesc(String region);
     
-    // Find prices for a specific region within a date range
-    List<ElectricityPrice> findByRegionAndPriceDateTimeBetweenOrderByPriceDateTimeAsc(
-        String region, LocalDateTime startDateTime, LocalDateTime endDateTime);
+    // Find prices for a specific region within a time range; the date bounds enable partition pruning
+    @Query("SELECT ep FROM ElectricityPrice ep WHERE ep.region = :region " +
+           "AND ep.priceDate BETWEEN :fromDate AND :toDate " +
+           "AND ep.priceDateTime BETWEEN :startDateTime AND :endDateTime ORDER BY ep.priceDateTime ASC")
+    List<ElectricityPrice> findPricesInRange(@Param("region") String region,
+                                             @Param("fromDate") LocalDate fromDate,
+                                             @Param("toDate") LocalDate toDate,
+                                             @Param("startDateTime") LocalDateTime startDateTime,
+                                             @Param("endDateTime") LocalDateTime endDateTime);
     
     // Find the latest price for a specific region
     Optional<ElectricityPrice> findFirstByRegionOrderByPriceDateTimeDesc(String region);
     
     // Find prices for today for a specific region
-    @Query(value = "SELECT * FROM electricity_prices ep WHERE ep.region = :region " +
-           "AND ep.price_date = CURRENT_DATE ORDER BY ep.price_date_time ASC", nativeQuery = true)
+    @Query(value = "SELECT * FROM electricity_prices ep WHERE ep.region_id = " + REGION_ID + " " +
+           "AND ep.price_date = CURRENT_DATE ORDER BY ep.interval_index ASC", nativeQuery = true)
     List<ElectricityPrice> findTodaysPricesForRegion(@Param("region") String region);
     
     // Find prices for tomorrow for a specific region
-    @Query(value = "SELECT * FROM electricity_prices ep WHERE ep.region = :region " +
-           "AND ep.price_date = CURRENT_DATE + INTERVAL '1 day' ORDER BY ep.price_date_time ASC", nativeQuery = true)
+    @Query(value = "SELECT * FROM electricity_prices ep WHERE ep.region_id = " + REGION_ID + " " +
+           "AND ep.price_date = CURRENT_DATE + INTERVAL '1 day' ORDER BY ep.interval_index ASC", nativeQuery = true)
     List<ElectricityPrice> findTomorrowsPricesForRegion(@Param("region") String region);
     
     // Find prices for a specific date and region
-    @Query(value = "SELECT * FROM electricity_prices ep WHERE ep.region = :region " +
-           "AND ep.price_date = :priceDate ORDER BY ep.price_date_time ASC", nativeQuery = true)
+    @Query(value = "SELECT * FROM electricity_prices ep WHERE ep.region_id = " + REGION_ID + " " +
+           "AND ep.price_date = :priceDate ORDER BY ep.interval_index ASC", nativeQuery = true)
     List<ElectricityPrice> findPricesForDateAndRegion(@Param("region") String region, @Param("priceDate") LocalDate priceDate);
     
+    // Find prices for consecutive dates of a region in one round trip, ordered by date and interval
+    @Query(value = "SELECT * FROM electricity_prices ep WHERE ep.region_id = " + REGION_ID + " " +
+           "AND ep.price_date BETWEEN :fromDate AND :toDate ORDER BY ep.price_date ASC, ep.interval_index ASC", nativeQuery = true)
+    List<ElectricityPrice> findPricesForDatesAndRegion(@Param("region") String region,
+                                                       @Param("fromDate") LocalDate fromDate,
+                                                       @Param("toDate") LocalDate toDate);
+    
+    // Delete all prices for a date and region in one statement, without loading the entities
+    @Modifying
+    @Query(value = "DELETE FROM electricity_prices WHERE region_id = " + REGION_ID + " AND price_date = :priceDate", nativeQuery = true)
+    int deleteByRegionAndPriceDate(@Param("region") String region, @Param("priceDate") LocalDate priceDate);
+    
+    // Count the prices of a day with the given resolution, e.g. to check whether the day is complete
+    @Query(value = "SELECT COUNT(*) FROM electricity_prices ep WHERE ep.region_id = " + REGION_ID + " " +
+           "AND ep.price_date = :priceDate AND ep.resolution_minutes = :resolutionMinutes", nativeQuery = true)
+    long countPricesForDate(@Param("region") String region, @Param("priceDate") LocalDate priceDate,
+                            @Param("resolutionMinutes") int resolutionMinutes);
+    
     // Check if price already exists for specific datetime and region
-    boolean existsByPriceDateTimeAndRegion(LocalDateTime priceDateTime, String region);
+    boolean existsByRegionAndPriceDateAndPriceDateTime(String region, LocalDate priceDate, LocalDateTime priceDateTime);
     
     // Find the lowest price for a specific date and region
-    @Query(value = "SELECT * FROM electricity_prices ep WHERE ep.region = :region " +
+    @Query(value = "SELECT * FROM electricity_prices ep WHERE ep.region_id = " + REGION_ID + " " +
            "AND ep.price_date = :priceDate " +
            "ORDER BY ep.total_price ASC LIMIT 1", nativeQuery = true)
     Optional<ElectricityPrice> findLowestPriceForDate(@Param("region") String region, 
                                                      @Param("priceDate") LocalDate priceDate);
     
     // Find the highest price for a specific date and region
-    @Query(value = "SELECT * FROM electricity_prices ep WHERE ep.region = :region " +
+    @Query(value = "SELECT * FROM electricity_prices ep WHERE ep.region_id = " + REGION_ID + " " +
            "AND ep.price_date = :priceDate " +
            "ORDER BY ep.total_price DESC LIMIT 1", nativeQuery = true)
     Optional<ElectricityPrice> findHighestPriceForDate(@Param("region") String region, 
@@ -58,13 +92,25 @@ public interface ElectricityPriceRepository extends JpaRepository<ElectricityPri
     
     // Get hourly prices for the last N hours
     @Query("SELECT ep FROM ElectricityPrice ep WHERE ep.region = :region " +
-           "AND ep.priceDateTime >= :fromDateTime ORDER BY ep.priceDateTime DESC")
-    List<ElectricityPrice> findRecentPricesForRegion(@Param("region") String region, 
+           "AND ep.priceDate >= :fromDate AND ep.priceDateTime >= :fromDateTime ORDER BY ep.priceDateTime DESC")
+    List<ElectricityPrice> findRecentPricesForRegion(@Param("region") String region,
+                                                    @Param("fromDate") LocalDate fromDate,
                                                     @Param("fromDateTime") LocalDateTime fromDateTime);
     
     // Find price for current hour (today's date and current hour)
-    @Query(value = "SELECT * FROM electricity_prices ep WHERE ep.region = :region " +
-           "AND ep.price_date = CURRENT_DATE AND ep.hour = :hour LIMIT 1", nativeQuery = true)
+    @Query(value = "SELECT * FROM electricity_prices ep WHERE ep.region_id = " + REGION_ID + " " +
+           "AND ep.price_date = CURRENT_DATE AND ep.hour = :hour ORDER BY ep.interval_index ASC LIMIT 1", nativeQuery = true)
     Optional<ElectricityPrice> findPriceForCurrentHour(@Param("region") String region, 
                                                        @Param("hour") int hour);
+    
+    // Hourly aggregates for a date range, computed in the database from hourly or quarter-hourly rows
+    @Query(value = "SELECT ep.price_date AS priceDate, ep.hour AS hour, COUNT(*) AS intervalCount, " +
+           "AVG(ep.spot_price) AS avgSpotPrice, MIN(ep.spot_price) AS minSpotPrice, " +
+           "MAX(ep.spot_price) AS maxSpotPrice, AVG(ep.total_price) AS avgTotalPrice " +
+           "FROM electricity_prices ep WHERE ep.region_id = " + REGION_ID + " " +
+           "AND ep.price_date BETWEEN :fromDate AND :toDate " +
+           "GROUP BY ep.price_date, ep.hour ORDER BY ep.price_date, ep.hour", nativeQuery = true)
+    List<HourlyPriceAggregate> findHourlyAggregates(@Param("region") String region,
+                                                    @Param("fromDate") LocalDate fromDate,
+                                                    @Param("toDate") LocalDate toDate);
 }
\ No newline at end of file
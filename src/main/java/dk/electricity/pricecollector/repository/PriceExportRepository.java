@@ -0,0 +1,109 @@
+package dk.electricity.pricecollector.repository;
+
+import dk.electricity.pricecollector.model.PriceIntervals;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Reads prices for bulk export through a server-side cursor.
+ * Rows are handed over one at a time in a single reused {@link ExportRow}, so memory use does not
+ * grow with the size of the exported range.
+ */
+@Repository
+public class PriceExportRepository {
+
+    private static final String EXPORT_SQL =
+        "SELECT region_id, price_date, interval_index, resolution_minutes, " +
+        "CAST(spot_price * 1000000 AS BIGINT), CAST(transmission_tariff * 1000000 AS BIGINT), " +
+        "CAST(system_tariff * 1000000 AS BIGINT), CAST(electricity_tax * 1000000 AS BIGINT), " +
+        "CAST(total_price * 1000000 AS BIGINT) FROM electricity_prices " +
+        "WHERE region_id = ANY(?) AND price_date BETWEEN ? AND ? " +
+        "ORDER BY region_id, price_date, interval_index";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final RegionRepository regionRepository;
+    private final int fetchSize;
+
+    public PriceExportRepository(JdbcTemplate jdbcTemplate, RegionRepository regionRepository,
+                                 @Value("${price-collector.export.fetch-size:5000}") int fetchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.regionRepository = regionRepository;
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Stream the prices of the given regions from fromDate to toDate (inclusive), grouped by region
+     * (in order of region id) and ordered by time.
+     * The read-only transaction lets the driver fetch in chunks of the configured fetch size.
+     */
+    @Transactional(readOnly = true)
+    public void stream(List<String> regions, LocalDate fromDate, LocalDate toDate, Consumer<ExportRow> consumer) {
+        ExportRow row = new ExportRow();
+        Short[] regionIds = regions.stream().map(regionRepository::idOf).toArray(Short[]::new);
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(EXPORT_SQL);
+            ps.setFetchSize(fetchSize);
+            ps.setArray(1, connection.createArrayOf("smallint", regionIds));
+            ps.setDate(2, Date.valueOf(fromDate));
+            ps.setDate(3, Date.valueOf(toDate));
+            return ps;
+        }, rs -> {
+            LocalDate date = rs.getObject(2, LocalDate.class);
+            if (!date.equals(row.date)) {
+                row.date = date;
+                row.dayStartEpochSecond = date.atStartOfDay(PriceIntervals.ZONE).toEpochSecond();
+            }
+            row.region = regionRepository.codeOf(rs.getShort(1));
+            row.intervalIndex = rs.getInt(3);
+            row.resolutionMinutes = rs.getInt(4);
+            row.spotMicros = rs.getLong(5);
+            row.transmissionMicros = rs.getLong(6);
+            row.systemMicros = rs.getLong(7);
+            row.electricityTaxMicros = rs.getLong(8);
+            row.totalMicros = rs.getLong(9);
+            consumer.accept(row);
+        });
+    }
+
+    /**
+     * One exported price; the instance is reused for every row, so consumers must not keep it
+     */
+    public static final class ExportRow {
+        private String region;
+        private LocalDate date;
+        private long dayStartEpochSecond;
+        private int intervalIndex;
+        private int resolutionMinutes;
+        private long spotMicros;
+        private long transmissionMicros;
+        private long systemMicros;
+        private long electricityTaxMicros;
+        private long totalMicros;
+
+        // Getters
+        public String getRegion() { return region; }
+        public LocalDate getDate() { return date; }
+        public int getIntervalIndex() { return intervalIndex; }
+        public int getResolutionMinutes() { return resolutionMinutes; }
+        public long getSpotMicros() { return spotMicros; }
+        public long getTransmissionMicros() { return transmissionMicros; }
+        public long getSystemMicros() { return systemMicros; }
+        public long getElectricityTaxMicros() { return electricityTaxMicros; }
+        public long getTotalMicros() { return totalMicros; }
+
+        /**
+         * Interval start from the date and interval index, unambiguous on DST days
+         */
+        public long getStartEpochSecond() {
+            return dayStartEpochSecond + (long) intervalIndex * resolutionMinutes * 60;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package dk.electricity.pricecollector.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * DDL for the monthly partitions of electricity_prices (see V5 migration).
+ * Partitions are named electricity_prices_YYYY_MM and cover one calendar month of price_date.
+ */
+@Repository
+public class PricePartitionRepository {
+
+    private static final String PARTITION_PREFIX = "electricity_prices_";
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+
+    private static final String LIST_PARTITIONS_SQL =
+        "SELECT child.relname FROM pg_inherits " +
+        "JOIN pg_class parent ON pg_inherits.inhparent = parent.oid " +
+        "JOIN pg_class child ON pg_inherits.inhrelid = child.oid " +
+        "WHERE parent.relname = 'electricity_prices' ORDER BY child.relname";
+
+    // Planner statistics instead of a scan; reltuples is -1 for a table that was never vacuumed or analyzed
+    private static final String ESTIMATED_ROWS_SQL =
+        "SELECT GREATEST(reltuples, 0)::bigint FROM pg_class WHERE oid = to_regclass(?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Months known to have a partition, so writes only pay for the DDL round-trip once per month
+    private final Set<YearMonth> knownPartitions = ConcurrentHashMap.newKeySet();
+
+    public PricePartitionRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Create the partitions for the given months if they do not exist yet
+     */
+    public void ensurePartitions(Collection<YearMonth> months) {
+        for (YearMonth month : months) {
+            if (!knownPartitions.contains(month)) {
+                jdbcTemplate.queryForObject("SELECT create_electricity_prices_partition(?)", String.class,
+                    month.atDay(1));
+                rememberAfterCommit(month);
+            }
+        }
+    }
+
+    // DDL is transactional in PostgreSQL; a rolled back write must not leave the month marked as created
+    private void rememberAfterCommit(YearMonth month) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    knownPartitions.add(month);
+                }
+            });
+        } else {
+            knownPartitions.add(month);
+        }
+    }
+
+    /**
+     * Months that currently have a partition, oldest first
+     */
+    public List<YearMonth> findPartitionMonths() {
+        return jdbcTemplate.queryForList(LIST_PARTITIONS_SQL, String.class).stream()
+            .filter(name -> name.startsWith(PARTITION_PREFIX))
+            .map(name -> YearMonth.parse(name.substring(PARTITION_PREFIX.length()), PARTITION_SUFFIX))
+            .sorted()
+            .toList();
+    }
+
+    /**
+     * Drop the partition for a month together with all of its rows and return the planner's estimate
+     * of how many rows it held (pg_class.reltuples as of the last vacuum or analyze)
+     */
+    public long dropPartition(YearMonth month) {
+        String partition = partitionName(month);
+        List<Long> rows = jdbcTemplate.queryForList(ESTIMATED_ROWS_SQL, Long.class, partition);
+        knownPartitions.remove(month);
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + partition);
+        return rows.isEmpty() || rows.get(0) == null ? 0L : rows.get(0);
+    }
+
+    public static String partitionName(YearMonth month) {
+        return PARTITION_PREFIX + month.format(PARTITION_SUFFIX);
+    }
+}
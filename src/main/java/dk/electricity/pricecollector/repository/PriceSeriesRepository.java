@@ -0,0 +1,126 @@
+package dk.electricity.pricecollector.repository;
+
+import dk.electricity.pricecollector.model.PriceIntervals;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Streams prices as plain columns for the in-memory price series.
+ * Prices are converted to micro-DKK in the query, so reading a row needs neither an entity
+ * nor a BigDecimal, and rows come in time order per region.
+ */
+@Repository
+public class PriceSeriesRepository {
+
+    private static final String SELECT_COLUMNS =
+        "SELECT region_id, price_date, interval_index, resolution_minutes, " +
+        "CAST(spot_price * 1000000 AS BIGINT), CAST(total_price * 1000000 AS BIGINT) FROM electricity_prices ";
+
+    private static final String SELECT_ALL_SQL = SELECT_COLUMNS +
+        "ORDER BY region_id, price_date, interval_index";
+
+    private static final String SELECT_DAYS_SQL = SELECT_COLUMNS +
+        "WHERE region_id = ? AND price_date BETWEEN ? AND ? ORDER BY price_date, interval_index";
+
+    // Same sums the archive keeps in its file headers, computed without transferring any rows
+    private static final String SUMMARIZE_YEARS_SQL =
+        "SELECT region_id, CAST(EXTRACT(YEAR FROM price_date) AS INTEGER), COUNT(*), " +
+        "SUM(CAST(spot_price * 1000000 AS BIGINT)), SUM(CAST(total_price * 1000000 AS BIGINT)) " +
+        "FROM electricity_prices GROUP BY 1, 2";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final RegionRepository regionRepository;
+    private final int fetchSize;
+
+    public PriceSeriesRepository(JdbcTemplate jdbcTemplate, RegionRepository regionRepository,
+                                 @Value("${price-collector.series.fetch-size:10000}") int fetchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.regionRepository = regionRepository;
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Stream every stored price grouped by region and ordered by time.
+     * Runs in a read-only transaction so the driver can use a cursor and fetch in chunks
+     * instead of materializing the whole table.
+     */
+    @Transactional(readOnly = true)
+    public void streamAll(SeriesRowHandler handler) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(SELECT_ALL_SQL);
+            ps.setFetchSize(fetchSize);
+            return ps;
+        }, new DayStartTracker(handler, regionRepository)::processRow);
+    }
+
+    /**
+     * Stream the prices of one region from fromDate to toDate (inclusive) in time order
+     */
+    public void streamDays(String region, LocalDate fromDate, LocalDate toDate, SeriesRowHandler handler) {
+        jdbcTemplate.query(SELECT_DAYS_SQL, new DayStartTracker(handler, regionRepository)::processRow,
+            regionRepository.idOf(region), Date.valueOf(fromDate), Date.valueOf(toDate));
+    }
+
+    /**
+     * Row count and price sums per region and year, used to tell whether an archived year is current
+     */
+    public List<YearSummary> summarizeYears() {
+        return jdbcTemplate.query(SUMMARIZE_YEARS_SQL, (rs, rowNum) ->
+            new YearSummary(regionRepository.codeOf(rs.getShort(1)), rs.getInt(2), rs.getLong(3), rs.getLong(4), rs.getLong(5)));
+    }
+
+    /**
+     * Receives one price row as primitive columns
+     */
+    @FunctionalInterface
+    public interface SeriesRowHandler {
+        void row(String region, long epochSecond, int resolutionMinutes, long spotMicros, long totalMicros);
+    }
+
+    /**
+     * Fingerprint of one region's prices in one calendar year
+     */
+    public record YearSummary(String region, int year, long count, long spotMicrosSum, long totalMicrosSum) {
+    }
+
+    // Interval start from the date and interval index, so the repeated autumn hour keeps two distinct instants.
+    // Region codes are looked up only when the region id changes between rows.
+    private static final class DayStartTracker {
+        private final SeriesRowHandler handler;
+        private final RegionRepository regionRepository;
+        private short regionId;
+        private String region;
+        private LocalDate date;
+        private long dayStartEpochSecond;
+
+        private DayStartTracker(SeriesRowHandler handler, RegionRepository regionRepository) {
+            this.handler = handler;
+            this.regionRepository = regionRepository;
+        }
+
+        private void processRow(ResultSet rs) throws SQLException {
+            LocalDate rowDate = rs.getObject(2, LocalDate.class);
+            if (!rowDate.equals(date)) {
+                date = rowDate;
+                dayStartEpochSecond = rowDate.atStartOfDay(PriceIntervals.ZONE).toEpochSecond();
+            }
+            short rowRegionId = rs.getShort(1);
+            if (region == null || rowRegionId != regionId) {
+                regionId = rowRegionId;
+                region = regionRepository.codeOf(rowRegionId);
+            }
+            int resolutionMinutes = rs.getInt(4);
+            long epochSecond = dayStartEpochSecond + rs.getLong(3) * resolutionMinutes * 60;
+            handler.row(region, epochSecond, resolutionMinutes, rs.getLong(5), rs.getLong(6));
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package dk.electricity.pricecollector.repository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps region codes to the SMALLINT ids electricity_prices stores (V6 migration).
+ * The regions table is tiny and only grows when a new zone is configured, so it is held in memory
+ * and JDBC queries bind and read ids directly instead of joining it.
+ */
+@Repository
+public class RegionRepository {
+
+    private static final Logger logger = LoggerFactory.getLogger(RegionRepository.class);
+
+    /** Id of no region: matches no rows and is rejected by the foreign key on insert */
+    public static final short UNKNOWN_ID = 0;
+
+    private static final String SELECT_ALL_SQL = "SELECT id, code FROM regions";
+    private static final String INSERT_SQL = "INSERT INTO regions (code) VALUES (?) ON CONFLICT (code) DO NOTHING";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<String, Short> idsByCode = new ConcurrentHashMap<>();
+    private volatile String[] codesById = new String[0];
+
+    public RegionRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        reload();
+    }
+
+    /**
+     * Id of a region, registering the code first if it is not stored yet. Only for codes that are
+     * about to be written, so arbitrary request parameters never end up in the regions table.
+     */
+    public short register(String code) {
+        Short id = idsByCode.get(code);
+        if (id != null) {
+            return id;
+        }
+        synchronized (this) {
+            if (jdbcTemplate.update(INSERT_SQL, code) > 0) {
+                logger.info("Registered region {}", code);
+            }
+            reload();
+            return idsByCode.get(code);
+        }
+    }
+
+    /**
+     * Id of a region, or {@link #UNKNOWN_ID} when no prices can have been stored for it
+     */
+    public short idOf(String code) {
+        Short id = idsByCode.get(code);
+        return id != null ? id : UNKNOWN_ID;
+    }
+
+    /**
+     * Code of a stored region id
+     */
+    public String codeOf(short id) {
+        String[] codes = codesById;
+        if (id > 0 && id < codes.length && codes[id] != null) {
+            return codes[id];
+        }
+        // Registered by another instance since this one loaded the table
+        synchronized (this) {
+            reload();
+            codes = codesById;
+        }
+        if (id > 0 && id < codes.length && codes[id] != null) {
+            return codes[id];
+        }
+        throw new IllegalStateException("Unknown region id: " + id);
+    }
+
+    private synchronized void reload() {
+        Map<Short, String> rows = new HashMap<>();
+        jdbcTemplate.query(SELECT_ALL_SQL, rs -> {
+            rows.put(rs.getShort(1), rs.getString(2));
+        });
+        int maxId = rows.keySet().stream().mapToInt(Short::intValue).max().orElse(0);
+        String[] codes = Arrays.copyOf(codesById, Math.max(codesById.length, maxId + 1));
+        rows.forEach((id, code) -> {
+            codes[id] = code;
+            idsByCode.put(code, id);
+        });
+        codesById = codes;
+    }
+}
@@ -0,0 +1,311 @@
+package dk.electricity.pricecollector.service;
+
+import dk.electricity.pricecollector.model.ElectricityPrice;
+import dk.electricity.pricecollector.repository.ElectricityPriceBatchRepository.UpsertResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Backfills prices for a date range and a set of regions.
+ * Downloads run concurrently on one pool shared by the service (bounded by a configurable limit)
+ * and hand their results to the persisting thread through a bounded queue, which stores them one
+ * region/day at a time. A full queue blocks the downloaders, so a slow database throttles the
+ * fetch side instead of piling fetched days up in memory. Only one backfill runs at a time.
+ */
+@Service
+public class BulkPriceFetchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkPriceFetchService.class);
+
+    @Autowired
+    private ElprisenLigenuService elprisenLigenuService;
+
+    @Autowired
+    private ElectricityPriceService electricityPriceService;
+
+    @Autowired
+    private RegionRegistry regionRegistry;
+
+    @Autowired
+    private RetentionService retentionService;
+
+    @Autowired
+    @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+    private TaskExecutor taskExecutor;
+
+    @Value("${price-collector.bulk-fetch.queue-capacity:32}")
+    private int queueCapacity;
+
+    @Value("${price-collector.bulk-fetch.max-days:3660}")
+    private int maxDays;
+
+    @Value("${price-collector.bulk-fetch.persist-timeout:5m}")
+    private Duration persistTimeout;
+
+    private final int concurrency;
+    // Bounds the concurrent upstream requests of the whole service, not of a single backfill
+    private final ExecutorService fetchExecutor;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile BulkFetchStatus lastRun;
+
+    public BulkPriceFetchService(@Value("${price-collector.bulk-fetch.concurrency:8}") int concurrency) {
+        this.concurrency = concurrency;
+        this.fetchExecutor = Executors.newFixedThreadPool(concurrency, new FetchThreadFactory());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        fetchExecutor.shutdownNow();
+    }
+
+    /**
+     * Start a backfill of [from, to] (inclusive) for the given regions in the background.
+     * The range is validated right away; {@link #getStatus()} reports whether it is still running and its outcome.
+     *
+     * @throws IllegalStateException when a backfill is already running
+     */
+    public BulkFetchStatus startRange(LocalDate from, LocalDate to, Collection<String> regions) {
+        validate(from, to, regions);
+        List<String> regionList = List.copyOf(regions);
+        acquire();
+        BulkFetchStatus started = new BulkFetchStatus(from, to, regionList, true, null, null);
+        lastRun = started;
+        try {
+            taskExecutor.execute(() -> {
+                try {
+                    BulkFetchResult result = fetchRange(from, to, regionList);
+                    lastRun = new BulkFetchStatus(from, to, regionList, false, result, null);
+                } catch (RuntimeException e) {
+                    logger.error("Bulk fetch of {} to {} failed", from, to, e);
+                    lastRun = new BulkFetchStatus(from, to, regionList, false, null, e.getMessage());
+                } finally {
+                    running.set(false);
+                }
+            });
+        } catch (RuntimeException e) {
+            running.set(false);
+            throw e;
+        }
+        return started;
+    }
+
+    /**
+     * The running backfill, or the last one to finish; null when none has been started
+     */
+    public BulkFetchStatus getStatus() {
+        return lastRun;
+    }
+
+    /**
+     * Fetch and save prices for every date in [from, to] (inclusive) and every given region,
+     * persisting on the calling thread
+     *
+     * @throws IllegalStateException when a backfill is already running
+     */
+    public BulkFetchResult fetchAndSaveRange(LocalDate from, LocalDate to, Collection<String> regions) {
+        validate(from, to, regions);
+        acquire();
+        try {
+            return fetchRange(from, to, regions);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private void acquire() {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("A bulk fetch is already running");
+        }
+    }
+
+    private void validate(LocalDate from, LocalDate to, Collection<String> regions) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("from must not be after to");
+        }
+        long days = ChronoUnit.DAYS.between(from, to) + 1;
+        if (days > maxDays) {
+            throw new IllegalArgumentException("Date range of " + days + " days exceeds the maximum of " + maxDays);
+        }
+        // Days the next retention run would delete again are not worth fetching
+        LocalDateTime retentionCutoff = retentionService.currentCutoff();
+        if (retentionCutoff != null && from.isBefore(retentionCutoff.toLocalDate())) {
+            throw new IllegalArgumentException("from " + from + " is before the retention cutoff "
+                    + retentionCutoff.toLocalDate() + " (price-collector.retention.window)");
+        }
+        if (regions.isEmpty()) {
+            throw new IllegalArgumentException("At least one region is required");
+        }
+        for (String region : regions) {
+            if (!regionRegistry.isConfigured(region)) {
+                throw new IllegalArgumentException("Unknown region: " + region);
+            }
+        }
+    }
+
+    private BulkFetchResult fetchRange(LocalDate from, LocalDate to, Collection<String> regions) {
+        long days = ChronoUnit.DAYS.between(from, to) + 1;
+        int expected = (int) days * regions.size();
+        logger.info("Bulk fetching {} region-days ({} to {}, regions {}) with concurrency {}",
+                expected, from, to, regions, concurrency);
+        long start = System.nanoTime();
+
+        BlockingQueue<FetchedDay> queue = new ArrayBlockingQueue<>(queueCapacity);
+        // The pool bounds the concurrent requests; a worker blocks until its result is queued,
+        // so at most `concurrency` fetched days wait in memory beyond the queue itself
+        List<Future<?>> tasks = new ArrayList<>(expected);
+
+        UpsertResult total = UpsertResult.EMPTY;
+        List<String> missing = new ArrayList<>();
+        int fetched = 0;
+        try {
+            for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+                for (String region : regions) {
+                    LocalDate fetchDate = date;
+                    tasks.add(fetchExecutor.submit(() -> fetchInto(queue, fetchDate, region)));
+                }
+            }
+
+            // Persistence stage: drain the queue on the calling thread
+            for (int i = 0; i < expected; i++) {
+                FetchedDay day = queue.poll(persistTimeout.toMillis(), TimeUnit.MILLISECONDS);
+                if (day == null) {
+                    throw new IllegalStateException("Timed out waiting for fetched prices after " + i + " of " + expected);
+                }
+                if (day.prices().isEmpty()) {
+                    missing.add(day.date() + " " + day.region());
+                    continue;
+                }
+                total = total.plus(electricityPriceService.upsertPrices(day.prices()));
+                fetched++;
+
+                if (fetched % 100 == 0) {
+                    logger.info("Bulk fetch progress: {} of {} region-days stored", fetched, expected);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Bulk fetch interrupted", e);
+        } finally {
+            // Only left over after a failure; frees the shared pool of this run's remaining days
+            tasks.forEach(task -> task.cancel(true));
+        }
+
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        logger.info("Bulk fetch finished in {} ms: {} region-days stored, {} missing, {}",
+                elapsedMs, fetched, missing.size(), total);
+        return new BulkFetchResult(from, to, List.copyOf(regions), expected, fetched, missing, total, elapsedMs);
+    }
+
+    private void fetchInto(BlockingQueue<FetchedDay> queue, LocalDate date, String region) {
+        try {
+            List<ElectricityPrice> prices = elprisenLigenuService.fetchPricesForDate(date, region);
+            queue.put(new FetchedDay(date, region, prices));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private record FetchedDay(LocalDate date, String region, List<ElectricityPrice> prices) {
+    }
+
+    private static class FetchThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "bulk-fetch-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    /**
+     * A started backfill: running, or finished with its result or error
+     */
+    public static class BulkFetchStatus {
+        private final LocalDate from;
+        private final LocalDate to;
+        private final List<String> regions;
+        private final boolean running;
+        private final BulkFetchResult result;
+        private final String error;
+
+        public BulkFetchStatus(LocalDate from, LocalDate to, List<String> regions, boolean running,
+                               BulkFetchResult result, String error) {
+            this.from = from;
+            this.to = to;
+            this.regions = regions;
+            this.running = running;
+            this.result = result;
+            this.error = error;
+        }
+
+        // Getters
+        public LocalDate getFrom() { return from; }
+        public LocalDate getTo() { return to; }
+        public List<String> getRegions() { return regions; }
+        public boolean isRunning() { return running; }
+        public BulkFetchResult getResult() { return result; }
+        public String getError() { return error; }
+    }
+
+    /**
+     * Summary of a bulk fetch run
+     */
+    public static class BulkFetchResult {
+        private final LocalDate from;
+        private final LocalDate to;
+        private final List<String> regions;
+        private final int requestedDays;
+        private final int storedDays;
+        private final List<String> missingDays;
+        private final UpsertResult rows;
+        private final long elapsedMs;
+
+        public BulkFetchResult(LocalDate from, LocalDate to, List<String> regions, int requestedDays,
+                               int storedDays, List<String> missingDays, UpsertResult rows, long elapsedMs) {
+            this.from = from;
+            this.to = to;
+            this.regions = regions;
+            this.requestedDays = requestedDays;
+            this.storedDays = storedDays;
+            this.missingDays = missingDays;
+            this.rows = rows;
+            this.elapsedMs = elapsedMs;
+        }
+
+        // Getters
+        public LocalDate getFrom() { return from; }
+        public LocalDate getTo() { return to; }
+        public List<String> getRegions() { return regions; }
+        public int getRequestedDays() { return requestedDays; }
+        public int getStoredDays() { return storedDays; }
+        public List<String> getMissingDays() { return missingDays; }
+        public UpsertResult getRows() { return rows; }
+        public long getElapsedMs() { return elapsedMs; }
+    }
+}
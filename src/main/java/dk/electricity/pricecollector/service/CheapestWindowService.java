@@ -0,0 +1,402 @@
+package dk.electricity.pricecollector.service;
+
+import dk.electricity.pricecollector.model.ElectricityPrice;
+import dk.electricity.pricecollector.model.PriceIntervals;
+import dk.electricity.pricecollector.model.PriceMicros;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Finds the cheapest time to run flexible consumption (EV charging, heat pumps) within today and
+ * tomorrow: either one contiguous window of a given length, or the cheapest slots adding up to a
+ * given duration before a deadline. Prices are the stored totals, or the spot price plus the tariffs
+ * of the query's grid company. Works on the cached day snapshots only, so a batch of queries
+ * for thousands of devices costs two cache lookups per region and O(n) work per query.
+ */
+@Service
+public class CheapestWindowService {
+
+    public static final String CONTIGUOUS = "window";
+    public static final String SLOTS = "slots";
+
+    private static final int INDEX_BITS = 16;
+    private static final long INDEX_MASK = (1L << INDEX_BITS) - 1;
+
+    @Autowired
+    private ElectricityPriceService priceService;
+
+    @Autowired
+    private TariffEngine tariffEngine;
+
+    @Autowired
+    private RegionRegistry regionRegistry;
+
+    /**
+     * Answer a batch of queries. Each region's timeline is built once and shared by all its queries.
+     */
+    public List<ScheduleResult> findCheapest(List<ScheduleQuery> queries) {
+        LocalDate today = LocalDate.now();
+        LocalDateTime now = LocalDateTime.now();
+        Map<TimelineKey, Timeline> timelines = new HashMap<>();
+        List<ScheduleResult> results = new ArrayList<>(queries.size());
+        for (ScheduleQuery query : queries) {
+            if (query.getRegion() == null) {
+                query.setRegion(regionRegistry.getDefaultRegion());
+            }
+            if (!regionRegistry.isConfigured(query.getRegion())) {
+                results.add(ScheduleResult.failed(query, "unknown region"));
+                continue;
+            }
+            if (query.getGridCompany() != null && !tariffEngine.hasCompany(query.getGridCompany())) {
+                results.add(ScheduleResult.failed(query, "unknown grid company"));
+                continue;
+            }
+            Timeline timeline;
+            try {
+                timeline = timelines.computeIfAbsent(new TimelineKey(query.getRegion(), query.getGridCompany()),
+                    key -> timeline(key, today));
+            } catch (IllegalArgumentException e) {
+                // E.g. no tariff version of the grid company is valid yet; fails this query, not the batch
+                results.add(ScheduleResult.failed(query, e.getMessage()));
+                continue;
+            }
+            results.add(answer(query, timeline, now));
+        }
+        return results;
+    }
+
+    // Stored totals by default; a grid company's tariffs are applied to the spot prices instead when given
+    private Timeline timeline(TimelineKey key, LocalDate today) {
+        DayPrices[] days = {
+            priceService.getDaySnapshot(key.region(), today).getDay(),
+            priceService.getDaySnapshot(key.region(), today.plusDays(1)).getDay()
+        };
+        long[][] totals = new long[days.length][];
+        for (int d = 0; d < days.length; d++) {
+            if (key.gridCompany() != null) {
+                totals[d] = tariffEngine.totalMicros(key.gridCompany(), days[d]);
+            } else {
+                totals[d] = new long[days[d].size()];
+                for (int i = 0; i < totals[d].length; i++) {
+                    totals[d][i] = days[d].getTotalMicros(i);
+                }
+            }
+        }
+        return Timeline.of(days, totals);
+    }
+
+    private static ScheduleResult answer(ScheduleQuery query, Timeline timeline, LocalDateTime now) {
+        if (!CONTIGUOUS.equals(query.getType()) && !SLOTS.equals(query.getType())) {
+            return ScheduleResult.failed(query, "type must be '" + CONTIGUOUS + "' or '" + SLOTS + "'");
+        }
+        if (query.getDuration() == null || query.getDuration().isZero() || query.getDuration().isNegative()) {
+            return ScheduleResult.failed(query, "duration must be positive");
+        }
+        if (timeline.isEmpty()) {
+            return ScheduleResult.failed(query, "no prices available");
+        }
+
+        LocalDateTime from = query.getFrom() != null ? query.getFrom() : now;
+        long fromEpoch = from.atZone(PriceIntervals.ZONE).toEpochSecond();
+        long untilEpoch = query.getUntil() != null
+            ? query.getUntil().atZone(PriceIntervals.ZONE).toEpochSecond()
+            : Long.MAX_VALUE;
+        // Only slots that have not started yet can still be scheduled
+        int first = timeline.firstStartingAtOrAfter(fromEpoch);
+        int end = timeline.firstEndingAfter(untilEpoch);
+        int slotCount = (int) Math.ceil((double) query.getDuration().toSeconds() / timeline.slotSeconds);
+        if (end - first < slotCount) {
+            return ScheduleResult.failed(query, "not enough priced slots between from and until");
+        }
+
+        return SLOTS.equals(query.getType())
+            ? cheapestSlots(query, timeline, first, end, slotCount)
+            : cheapestWindow(query, timeline, first, end, slotCount);
+    }
+
+    /**
+     * Sliding window over the slot prices: O(n) for the window sums. Windows spanning a gap in
+     * the data (a missing interval) are skipped.
+     */
+    private static ScheduleResult cheapestWindow(ScheduleQuery query, Timeline timeline, int first, int end, int length) {
+        long windowSpan = (long) (length - 1) * timeline.slotSeconds;
+        long sum = 0;
+        for (int i = first; i < first + length - 1; i++) {
+            sum += timeline.totalMicros[i];
+        }
+
+        long bestSum = Long.MAX_VALUE;
+        int bestStart = -1;
+        for (int start = first; start + length <= end; start++) {
+            sum += timeline.totalMicros[start + length - 1];
+            if (timeline.epochSeconds[start + length - 1] - timeline.epochSeconds[start] == windowSpan && sum < bestSum) {
+                bestSum = sum;
+                bestStart = start;
+            }
+            sum -= timeline.totalMicros[start];
+        }
+
+        if (bestStart < 0) {
+            return ScheduleResult.failed(query, "no contiguous window of the requested length");
+        }
+        List<Slot> slots = List.of(timeline.slot(bestStart, length));
+        return ScheduleResult.of(query, slots, bestSum, length);
+    }
+
+    /**
+     * The k cheapest slots by quickselect over (price, position) keys: expected O(n), ties go to
+     * the earlier slot. Adjacent chosen slots are merged into one period in the result.
+     */
+    private static ScheduleResult cheapestSlots(ScheduleQuery query, Timeline timeline, int first, int end, int count) {
+        long[] keys = new long[end - first];
+        for (int i = first; i < end; i++) {
+            keys[i - first] = (timeline.totalMicros[i] << INDEX_BITS) | i;
+        }
+        select(keys, count);
+
+        int[] chosen = new int[count];
+        long sum = 0;
+        for (int i = 0; i < count; i++) {
+            chosen[i] = (int) (keys[i] & INDEX_MASK);
+            sum += timeline.totalMicros[chosen[i]];
+        }
+        Arrays.sort(chosen);
+
+        List<Slot> slots = new ArrayList<>();
+        int runStart = chosen[0];
+        for (int i = 1; i <= count; i++) {
+            boolean continues = i < count && chosen[i] == chosen[i - 1] + 1
+                && timeline.epochSeconds[chosen[i]] - timeline.epochSeconds[chosen[i - 1]] == timeline.slotSeconds;
+            if (!continues) {
+                slots.add(timeline.slot(runStart, chosen[i - 1] - runStart + 1));
+                if (i < count) {
+                    runStart = chosen[i];
+                }
+            }
+        }
+        return ScheduleResult.of(query, slots, sum, count);
+    }
+
+    // Partially order keys so the k smallest come first (Hoare partitioning with a random pivot)
+    static void select(long[] keys, int k) {
+        int low = 0;
+        int high = keys.length - 1;
+        while (low < high) {
+            long pivot = keys[low + ThreadLocalRandom.current().nextInt(high - low + 1)];
+            int i = low;
+            int j = high;
+            while (i <= j) {
+                while (keys[i] < pivot) i++;
+                while (keys[j] > pivot) j--;
+                if (i <= j) {
+                    long swap = keys[i];
+                    keys[i] = keys[j];
+                    keys[j] = swap;
+                    i++;
+                    j--;
+                }
+            }
+            if (k - 1 <= j) {
+                high = j;
+            } else if (k - 1 >= i) {
+                low = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private record TimelineKey(String region, String gridCompany) {
+    }
+
+    /**
+     * Today and tomorrow as equally long slots in time order. When one day is quarter-hourly and the
+     * other hourly, hourly prices are split into quarter hours so every query works on one slot size.
+     */
+    private static final class Timeline {
+        private final long[] epochSeconds;
+        private final long[] totalMicros;
+        private final long slotSeconds;
+        private final int size;
+
+        private Timeline(long[] epochSeconds, long[] totalMicros, long slotSeconds, int size) {
+            this.epochSeconds = epochSeconds;
+            this.totalMicros = totalMicros;
+            this.slotSeconds = slotSeconds;
+            this.size = size;
+        }
+
+        static Timeline of(DayPrices[] days, long[][] dayTotalMicros) {
+            int slotMinutes = PriceIntervals.HOURLY;
+            int capacity = 0;
+            for (DayPrices day : days) {
+                if (!day.isEmpty()) {
+                    slotMinutes = Math.min(slotMinutes, day.getResolutionMinutes());
+                }
+            }
+            for (DayPrices day : days) {
+                capacity += day.size() * (day.getResolutionMinutes() / slotMinutes);
+            }
+
+            long slotSeconds = slotMinutes * 60L;
+            long[] epochSeconds = new long[capacity];
+            long[] totalMicros = new long[capacity];
+            int size = 0;
+            for (int d = 0; d < days.length; d++) {
+                DayPrices day = days[d];
+                long dayStart = day.getDate().atStartOfDay(PriceIntervals.ZONE).toEpochSecond();
+                int split = day.getResolutionMinutes() / slotMinutes;
+                List<ElectricityPrice> prices = day.getPrices();
+                for (int i = 0; i < prices.size(); i++) {
+                    long start = dayStart + (long) DayPrices.intervalIndexOf(prices.get(i), day.getDate(),
+                        day.getResolutionMinutes()) * day.getResolutionMinutes() * 60;
+                    for (int part = 0; part < split; part++) {
+                        epochSeconds[size] = start + part * slotSeconds;
+                        totalMicros[size] = dayTotalMicros[d][i];
+                        size++;
+                    }
+                }
+            }
+            return new Timeline(epochSeconds, totalMicros, slotSeconds, size);
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        int firstStartingAtOrAfter(long epochSecond) {
+            int index = Arrays.binarySearch(epochSeconds, 0, size, epochSecond);
+            return index >= 0 ? index : -index - 1;
+        }
+
+        // Exclusive end index of the slots that finish by the given time
+        int firstEndingAfter(long epochSecond) {
+            return epochSecond == Long.MAX_VALUE ? size : firstStartingAtOrAfter(epochSecond - slotSeconds + 1);
+        }
+
+        Slot slot(int start, int length) {
+            long sum = 0;
+            for (int i = start; i < start + length; i++) {
+                sum += totalMicros[i];
+            }
+            return new Slot(toDateTime(epochSeconds[start]), toDateTime(epochSeconds[start] + length * slotSeconds),
+                PriceMicros.toDouble(PriceMicros.average(sum, length)));
+        }
+
+        private static OffsetDateTime toDateTime(long epochSecond) {
+            return Instant.ofEpochSecond(epochSecond).atZone(PriceIntervals.ZONE).toOffsetDateTime();
+        }
+    }
+
+    /**
+     * One scheduling question, e.g. "cheapest 3 hour window before 07:00 tomorrow" for a device
+     */
+    public static class ScheduleQuery {
+        private String id;
+        private String region; // Default region when not given
+        private String type = CONTIGUOUS;
+        private Duration duration;
+        private LocalDateTime from;
+        private LocalDateTime until;
+        private String gridCompany;
+
+        public ScheduleQuery() {
+        }
+
+        public ScheduleQuery(String id, String region, String type, Duration duration,
+                             LocalDateTime from, LocalDateTime until) {
+            this.id = id;
+            this.region = region;
+            this.type = type;
+            this.duration = duration;
+            this.from = from;
+            this.until = until;
+        }
+
+        // Getters and setters
+        public String getId() { return id; }
+        public void setId(String id) { this.id = id; }
+        public String getRegion() { return region; }
+        public void setRegion(String region) { this.region = region; }
+        public String getType() { return type; }
+        public void setType(String type) { this.type = type; }
+        public Duration getDuration() { return duration; }
+        public void setDuration(Duration duration) { this.duration = duration; }
+        public LocalDateTime getFrom() { return from; }
+        public void setFrom(LocalDateTime from) { this.from = from; }
+        public LocalDateTime getUntil() { return until; }
+        public void setUntil(LocalDateTime until) { this.until = until; }
+        public String getGridCompany() { return gridCompany; }
+        public void setGridCompany(String gridCompany) { this.gridCompany = gridCompany; }
+    }
+
+    /**
+     * A period to run in, with its average total price in DKK per kWh
+     */
+    public static class Slot {
+        private final OffsetDateTime start;
+        private final OffsetDateTime end;
+        private final double avgTotalPrice;
+
+        public Slot(OffsetDateTime start, OffsetDateTime end, double avgTotalPrice) {
+            this.start = start;
+            this.end = end;
+            this.avgTotalPrice = avgTotalPrice;
+        }
+
+        // Getters
+        public OffsetDateTime getStart() { return start; }
+        public OffsetDateTime getEnd() { return end; }
+        public double getAvgTotalPrice() { return avgTotalPrice; }
+    }
+
+    /**
+     * Answer to one query; slots is empty and error set when the query cannot be satisfied
+     */
+    public static class ScheduleResult {
+        private final String id;
+        private final String region;
+        private final String type;
+        private final List<Slot> slots;
+        private final Double avgTotalPrice;
+        private final String error;
+
+        private ScheduleResult(String id, String region, String type, List<Slot> slots, Double avgTotalPrice, String error) {
+            this.id = id;
+            this.region = region;
+            this.type = type;
+            this.slots = slots;
+            this.avgTotalPrice = avgTotalPrice;
+            this.error = error;
+        }
+
+        static ScheduleResult of(ScheduleQuery query, List<Slot> slots, long totalMicrosSum, int slotCount) {
+            return new ScheduleResult(query.getId(), query.getRegion(), query.getType(), slots,
+                PriceMicros.toDouble(PriceMicros.average(totalMicrosSum, slotCount)), null);
+        }
+
+        static ScheduleResult failed(ScheduleQuery query, String error) {
+            return new ScheduleResult(query.getId(), query.getRegion(), query.getType(), List.of(), null, error);
+        }
+
+        // Getters
+        public String getId() { return id; }
+        public String getRegion() { return region; }
+        public String getType() { return type; }
+        public List<Slot> getSlots() { return slots; }
+        public Double getAvgTotalPrice() { return avgTotalPrice; }
+        public String getError() { return error; }
+    }
+}
@@ -0,0 +1,79 @@
+package dk.electricity.pricecollector.service;
+
+import dk.electricity.pricecollector.config.RegionProperties;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The attributes dashboard.html is rendered with, built from a {@link DashboardView}. Shared by
+ * DashboardController and the dashboard benchmark, so both render the same model.
+ */
+public final class DashboardModel {
+
+    /** The today page, showing tomorrow when today has no prices */
+    public static final String TODAY = "today";
+
+    /** The tomorrow page, showing today when tomorrow has no prices */
+    public static final String TOMORROW = "tomorrow";
+
+    private DashboardModel() {
+    }
+
+    /**
+     * Model of a dashboard page for the view's region
+     *
+     * @param regionName    display name of the view's region
+     * @param zones         all configured zones, for the region selector
+     * @param defaultRegion whether the view's region is served at / rather than /regions/{region}
+     */
+    public static Map<String, Object> of(String page, DashboardView view, String regionName,
+                                         Collection<RegionProperties.Zone> zones, boolean defaultRegion) {
+        Map<String, Object> model = new LinkedHashMap<>();
+        DaySnapshot snapshot;
+        String pricesPeriod;
+        if (TOMORROW.equals(page)) {
+            model.put("title", "Tomorrow");
+            model.put("summary", view.getTomorrowsSummary());
+            snapshot = view.getTomorrow();
+            pricesPeriod = "Tomorrow";
+            if (snapshot.isEmpty()) {
+                snapshot = view.getToday();
+                pricesPeriod = "Today (Tomorrow not available)";
+            }
+        } else {
+            model.put("title", "Dashboard");
+            model.put("summary", view.getTodaysSummary());
+            snapshot = view.getToday();
+            pricesPeriod = "Today";
+            if (snapshot.isEmpty()) {
+                snapshot = view.getTomorrow();
+                pricesPeriod = "Tomorrow";
+            }
+        }
+
+        // Recent prices for chart
+        model.put("recentPrices", view.getRecentPrices(24));
+
+        // Precomputed day views, spot price ranking (1 = lowest) and green gradient row classes
+        model.put("todaysPrices", snapshot.getPrices()); // Keep same attribute name for template compatibility
+        model.put("pricesPeriod", pricesPeriod);
+        model.put("hourlyPricesList", snapshot.getHourlySlots());
+        model.put("hourlyPrices", snapshot.getHourlyPrices());
+        model.put("spotPriceRanks", snapshot.getSpotPriceRanks());
+        model.put("rowClasses", snapshot.getRowClasses());
+
+        // Add current hour for highlighting
+        model.put("currentHour", view.getNow().getHour());
+
+        // Region selector and links between the region's today and tomorrow pages
+        String basePath = defaultRegion ? "" : "/regions/" + view.getRegion();
+        model.put("region", view.getRegion());
+        model.put("regionName", regionName);
+        model.put("regions", zones);
+        model.put("todayPath", basePath.isEmpty() ? "/" : basePath);
+        model.put("tomorrowPath", basePath + "/tomorrow");
+        return model;
+    }
+}
@@ -0,0 +1,89 @@
+package dk.electricity.pricecollector.service;
+
+import dk.electricity.pricecollector.model.ElectricityPrice;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Yesterday's, today's and tomorrow's snapshots of a region as of one point in time, loaded
+ * together (days missing from the cache in a single range query). Every dashboard model
+ * attribute is derived from these three days without further database access.
+ */
+public final class DashboardView {
+
+    /** The recent window may reach back into yesterday, but not further */
+    public static final int MAX_RECENT_HOURS = 24;
+
+    private final String region;
+    private final LocalDateTime now;
+    private final DaySnapshot yesterday;
+    private final DaySnapshot today;
+    private final DaySnapshot tomorrow;
+
+    public DashboardView(String region, LocalDateTime now, DaySnapshot yesterday, DaySnapshot today, DaySnapshot tomorrow) {
+        this.region = region;
+        this.now = now;
+        this.yesterday = yesterday;
+        this.today = today;
+        this.tomorrow = tomorrow;
+    }
+
+    public String getRegion() {
+        return region;
+    }
+
+    public LocalDateTime getNow() {
+        return now;
+    }
+
+    public DaySnapshot getYesterday() {
+        return yesterday;
+    }
+
+    public DaySnapshot getToday() {
+        return today;
+    }
+
+    public DaySnapshot getTomorrow() {
+        return tomorrow;
+    }
+
+    /**
+     * The price of the interval containing now, or null when today has no prices
+     */
+    public ElectricityPrice getCurrentPrice() {
+        return today.isEmpty() ? null : today.getPriceAt(now);
+    }
+
+    public ElectricityPriceService.PriceSummary getTodaysSummary() {
+        return today.isEmpty() ? today.getSummary() : today.getSummary().withCurrentPrice(getCurrentPrice());
+    }
+
+    public ElectricityPriceService.PriceSummary getTomorrowsSummary() {
+        return tomorrow.getSummary();
+    }
+
+    /**
+     * Prices from the given number of hours before now onwards (including tomorrow's), newest first,
+     * as returned by ElectricityPriceService.getRecentPrices
+     */
+    public List<ElectricityPrice> getRecentPrices(int hours) {
+        if (hours < 0 || hours > MAX_RECENT_HOURS) {
+            throw new IllegalArgumentException("Recent window must be between 0 and " + MAX_RECENT_HOURS + " hours");
+        }
+        LocalDateTime from = now.minusHours(hours);
+        List<ElectricityPrice> recentPrices = new ArrayList<>();
+        for (DaySnapshot day : List.of(yesterday, today, tomorrow)) {
+            for (ElectricityPrice price : day.getPrices()) {
+                if (!price.getPriceDateTime().isBefore(from)) {
+                    recentPrices.add(price);
+                }
+            }
+        }
+        recentPrices.sort(Comparator.comparing(ElectricityPrice::getPriceDateTime).reversed());
+        return recentPrices;
+    }
+}
@@ -0,0 +1,236 @@
+package dk.electricity.pricecollector.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * In-memory cache of day-ahead price snapshots keyed by region and date.
+ * Day-ahead prices are published once a day, so entries stay valid until
+ * ingestion writes new data for the same region/date and invalidates or replaces them.
+ */
+@Component
+public class DayPriceCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(DayPriceCache.class);
+
+    private final Map<DayKey, Entry> entries = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    // Bumped by every invalidation, so loads that raced with one are not cached
+    private final AtomicLong generation = new AtomicLong();
+
+    private final int maxEntries;
+    private final long emptyDayTtlNanos;
+
+    public DayPriceCache(@Value("${price-collector.cache.max-entries-per-region:32}") int maxEntriesPerRegion,
+                         @Value("${price-collector.cache.empty-day-ttl:60s}") Duration emptyDayTtl,
+                         RegionRegistry regionRegistry) {
+        // Sized per configured region, so adding zones does not push out the days of the others
+        this.maxEntries = maxEntriesPerRegion * regionRegistry.getCodes().size();
+        this.emptyDayTtlNanos = emptyDayTtl.toNanos();
+    }
+
+    /**
+     * Get the cached snapshot for a region/date, loading it with the given loader on a miss.
+     * Days without any prices (e.g. tomorrow before publication) are only kept for a short TTL.
+     */
+    public DaySnapshot get(String region, LocalDate date, Supplier<DaySnapshot> loader) {
+        DayKey key = new DayKey(region, date);
+        Entry entry = entries.get(key);
+        if (entry != null && !entry.isExpired(emptyDayTtlNanos)) {
+            hits.increment();
+            return entry.snapshot;
+        }
+
+        misses.increment();
+        long loadGeneration = generation.get();
+        Entry[] ours = new Entry[1];
+        Entry loaded = entries.compute(key, (k, existing) -> {
+            if (existing != null && existing != entry && !existing.isExpired(emptyDayTtlNanos)) {
+                return existing;
+            }
+            ours[0] = new Entry(loader.get());
+            // Same rule as getAll(): a load that raced with an invalidation is served once, not cached
+            return generation.get() != loadGeneration ? null : ours[0];
+        });
+        evictIfFull();
+        return loaded != null ? loaded.snapshot : ours[0].snapshot;
+    }
+
+    /**
+     * Get the cached snapshots of several days of a region, loading all missing days with a single
+     * call of the loader (which must return a snapshot for every date it is given).
+     */
+    public Map<LocalDate, DaySnapshot> getAll(String region, List<LocalDate> dates,
+                                              Function<List<LocalDate>, Map<LocalDate, DaySnapshot>> loader) {
+        long loadGeneration = generation.get();
+        Map<LocalDate, DaySnapshot> result = new LinkedHashMap<>();
+        Map<LocalDate, Entry> stale = new HashMap<>();
+        List<LocalDate> missing = new ArrayList<>();
+        for (LocalDate date : dates) {
+            Entry entry = entries.get(new DayKey(region, date));
+            if (entry != null && !entry.isExpired(emptyDayTtlNanos)) {
+                hits.increment();
+                result.put(date, entry.snapshot);
+            } else {
+                misses.increment();
+                stale.put(date, entry);
+                missing.add(date);
+            }
+        }
+        if (missing.isEmpty()) {
+            return result;
+        }
+
+        // Unlike get(), the loader runs outside compute(), so an invalidation can happen while it reads
+        Map<LocalDate, DaySnapshot> loaded = loader.apply(missing);
+        for (LocalDate date : missing) {
+            Entry entry = stale.get(date);
+            Entry ours = new Entry(loaded.get(date));
+            // Same rule as get(): an entry another thread stored meanwhile wins over ours
+            Entry stored = entries.compute(new DayKey(region, date), (k, existing) -> {
+                if (existing != null && existing != entry && !existing.isExpired(emptyDayTtlNanos)) {
+                    return existing;
+                }
+                // Ours may predate a commit that invalidated the day: serve it once, but do not cache it.
+                // Checked inside compute(), which is atomic with the remove() that follows the bump.
+                return generation.get() != loadGeneration ? null : ours;
+            });
+            result.put(date, stored != null ? stored.snapshot : ours.snapshot);
+        }
+        evictIfFull();
+        return result;
+    }
+
+    /**
+     * Publish a freshly built snapshot, e.g. right after ingestion has stored new prices.
+     * Readers see either the previous or the new snapshot, never a partially built one.
+     */
+    public void put(DaySnapshot snapshot) {
+        entries.put(new DayKey(snapshot.getRegion(), snapshot.getDate()), new Entry(snapshot));
+        evictIfFull();
+    }
+
+    /**
+     * Drop the cached day for a region/date
+     */
+    public void invalidate(String region, LocalDate date) {
+        generation.incrementAndGet();
+        if (entries.remove(new DayKey(region, date)) != null) {
+            invalidations.increment();
+            logger.debug("Invalidated cached prices for region {} on {}", region, date);
+        }
+    }
+
+    /**
+     * Drop the cached day once the current transaction has committed, so concurrent readers
+     * cannot re-populate the cache with data from before the write.
+     */
+    public void invalidateAfterCommit(String region, LocalDate date) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidate(region, date);
+                }
+            });
+        } else {
+            invalidate(region, date);
+        }
+    }
+
+    /**
+     * Drop every cached day
+     */
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        int size = entries.size();
+        entries.clear();
+        invalidations.add(size);
+    }
+
+    public CacheStats getStats() {
+        return new CacheStats(entries.size(), hits.sum(), misses.sum(), evictions.sum(), invalidations.sum());
+    }
+
+    private void evictIfFull() {
+        while (entries.size() > maxEntries) {
+            // Oldest dates are the least likely to be requested again
+            DayKey oldest = entries.keySet().stream()
+                .min(Comparator.comparing(DayKey::date))
+                .orElse(null);
+            if (oldest == null || entries.remove(oldest) == null) {
+                return;
+            }
+            evictions.increment();
+        }
+    }
+
+    private record DayKey(String region, LocalDate date) {
+    }
+
+    private static final class Entry {
+        private final DaySnapshot snapshot;
+        private final long loadedAtNanos = System.nanoTime();
+
+        private Entry(DaySnapshot snapshot) {
+            this.snapshot = snapshot;
+        }
+
+        private boolean isExpired(long emptyDayTtlNanos) {
+            return snapshot.isEmpty() && System.nanoTime() - loadedAtNanos > emptyDayTtlNanos;
+        }
+    }
+
+    /**
+     * Snapshot of cache counters
+     */
+    public static class CacheStats {
+        private final int size;
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+        private final long invalidations;
+
+        public CacheStats(int size, long hits, long misses, long evictions, long invalidations) {
+            this.size = size;
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.invalidations = invalidations;
+        }
+
+        // Getters
+        public int getSize() { return size; }
+        public long getHits() { return hits; }
+        public long getMisses() { return misses; }
+        public long getEvictions() { return evictions; }
+        public long getInvalidations() { return invalidations; }
+
+        public double getHitRatio() {
+            long total = hits + misses;
+            return total == 0 ? 0.0 : (double) hits / total;
+        }
+    }
+}
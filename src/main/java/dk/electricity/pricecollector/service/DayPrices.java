@@ -0,0 +1,135 @@
+package dk.electricity.pricecollector.service;
+
+import dk.electricity.pricecollector.model.ElectricityPrice;
+import dk.electricity.pricecollector.model.PriceIntervals;
+import dk.electricity.pricecollector.model.PriceMicros;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable view of one region's prices for a single day.
+ * Prices are kept both in time order and in a slot array indexed by interval of the day,
+ * whose length depends on the resolution (24 hourly or 96 quarter-hourly slots on normal days).
+ * Spot and total prices are also kept as micro-DKK longs aligned with the time ordered list,
+ * which is what statistics and ranking work on.
+ */
+public final class DayPrices {
+
+    private final String region;
+    private final LocalDate date;
+    private final int resolutionMinutes;
+    private final List<ElectricityPrice> prices;
+    private final List<ElectricityPrice> slots;
+    private final long[] spotMicros;
+    private final long[] totalMicros;
+
+    private DayPrices(String region, LocalDate date, int resolutionMinutes,
+                      List<ElectricityPrice> prices, ElectricityPrice[] slots) {
+        this.region = region;
+        this.date = date;
+        this.resolutionMinutes = resolutionMinutes;
+        this.prices = prices;
+        this.slots = Collections.unmodifiableList(Arrays.asList(slots));
+        this.spotMicros = new long[prices.size()];
+        this.totalMicros = new long[prices.size()];
+        for (int i = 0; i < prices.size(); i++) {
+            spotMicros[i] = PriceMicros.of(prices.get(i).getSpotPrice());
+            totalMicros[i] = PriceMicros.of(prices.get(i).getTotalPrice());
+        }
+    }
+
+    /**
+     * Build a day view from prices ordered by interval (as returned by the repository)
+     */
+    public static DayPrices of(String region, LocalDate date, List<ElectricityPrice> prices) {
+        int resolutionMinutes = prices.isEmpty() || prices.get(0).getResolutionMinutes() == null
+            ? PriceIntervals.HOURLY
+            : prices.get(0).getResolutionMinutes();
+        ElectricityPrice[] slots = new ElectricityPrice[PriceIntervals.slotsPerDay(date, resolutionMinutes)];
+        for (ElectricityPrice price : prices) {
+            int index = intervalIndexOf(price, date, resolutionMinutes);
+            if (index >= 0 && index < slots.length) {
+                slots[index] = price;
+            }
+        }
+        return new DayPrices(region, date, resolutionMinutes, List.copyOf(prices), slots);
+    }
+
+    static int intervalIndexOf(ElectricityPrice price, LocalDate date, int resolutionMinutes) {
+        return price.getIntervalIndex() != null
+            ? price.getIntervalIndex()
+            : PriceIntervals.indexOf(date, price.getPriceDateTime(), resolutionMinutes);
+    }
+
+    public String getRegion() {
+        return region;
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    public int getResolutionMinutes() {
+        return resolutionMinutes;
+    }
+
+    /**
+     * All prices for the day in time order
+     */
+    public List<ElectricityPrice> getPrices() {
+        return prices;
+    }
+
+    /**
+     * One entry per interval of the day, null for missing intervals
+     */
+    public List<ElectricityPrice> getSlots() {
+        return slots;
+    }
+
+    public int getSlotCount() {
+        return slots.size();
+    }
+
+    /**
+     * The price of the interval containing the given local time, if it belongs to this day
+     */
+    public ElectricityPrice getPriceAt(LocalDateTime dateTime) {
+        if (!dateTime.toLocalDate().equals(date)) {
+            return null;
+        }
+        int index = PriceIntervals.indexOf(date, dateTime, resolutionMinutes);
+        return index >= 0 && index < slots.size() ? slots.get(index) : null;
+    }
+
+    /**
+     * Spot price in micro-DKK of the i-th price in time order
+     */
+    public long getSpotMicros(int i) {
+        return spotMicros[i];
+    }
+
+    /**
+     * Total price in micro-DKK of the i-th price in time order
+     */
+    public long getTotalMicros(int i) {
+        return totalMicros[i];
+    }
+
+    // Shared with DaySnapshot without copying; never modified after construction
+    long[] spotMicros() {
+        return spotMicros;
+    }
+
+    public boolean isEmpty() {
+        return prices.isEmpty();
+    }
+
+    public int size() {
+        return prices.size();
+    }
+}
@@ -0,0 +1,341 @@
+package dk.electricity.pricecollector.service;
+
+import dk.electricity.pricecollector.model.ElectricityPrice;
+import dk.electricity.pricecollector.model.PriceIntervals;
+import dk.electricity.pricecollector.model.PriceMicros;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Everything the dashboard derives from one region's day of prices, computed once when the
+ * day is loaded or ingested: the summary statistics, the spot price ranking, the green
+ * gradient row classes and the interval- and hour-indexed views.
+ * Snapshots are immutable and published by replacing the cache entry, so readers always see
+ * a consistent day without recomputing anything per request.
+ *
+ * Statistics and the interval ranking work on the day's own resolution. For quarter-hourly
+ * days the hourly view holds one averaged (not persisted) price per hour, which is what the
+ * 24-row dashboard table and chart display.
+ */
+public final class DaySnapshot {
+
+    private static final int HOURS_PER_DAY = 24;
+    private static final int HIGHLIGHTED_HOURS = 8; // Cheapest hours that get a green background
+    private static final int RANK_INDEX_BITS = 16;
+    private static final long RANK_INDEX_MASK = (1L << RANK_INDEX_BITS) - 1;
+
+    private final DayPrices day;
+    private final String version;
+    private final LocalDateTime lastModified;
+    private final ElectricityPriceService.PriceSummary summary;
+    private final int[] slotRanks;
+    private final List<ElectricityPrice> hourlySlots;
+    private final Map<Integer, ElectricityPrice> hourlyPrices;
+    private final Map<Integer, Integer> spotPriceRanks;
+    private final Map<Integer, String> rowClasses;
+
+    private DaySnapshot(DayPrices day, ElectricityPriceService.PriceSummary summary, int[] slotRanks,
+                        List<ElectricityPrice> hourlySlots, Map<Integer, ElectricityPrice> hourlyPrices,
+                        Map<Integer, Integer> spotPriceRanks, Map<Integer, String> rowClasses) {
+        this.day = day;
+        this.version = versionOf(day);
+        this.lastModified = day.getPrices().stream()
+            .map(ElectricityPrice::getUpdatedAt)
+            .filter(Objects::nonNull)
+            .max(Comparator.naturalOrder())
+            .orElse(null);
+        this.summary = summary;
+        this.slotRanks = slotRanks;
+        this.hourlySlots = hourlySlots;
+        this.hourlyPrices = hourlyPrices;
+        this.spotPriceRanks = spotPriceRanks;
+        this.rowClasses = rowClasses;
+    }
+
+    /**
+     * Build a snapshot from prices ordered by interval (as returned by the repository)
+     */
+    public static DaySnapshot of(String region, LocalDate date, List<ElectricityPrice> prices) {
+        return of(DayPrices.of(region, date, prices));
+    }
+
+    public static DaySnapshot of(DayPrices day) {
+        List<ElectricityPrice> prices = day.getPrices();
+        long[] spotMicros = day.spotMicros();
+
+        // Single pass for lowest, highest and average spot price on fixed-point values
+        int lowest = -1;
+        int highest = -1;
+        long spotSum = 0;
+        for (int i = 0; i < spotMicros.length; i++) {
+            if (lowest < 0 || spotMicros[i] < spotMicros[lowest]) {
+                lowest = i;
+            }
+            if (highest < 0 || spotMicros[i] > spotMicros[highest]) {
+                highest = i;
+            }
+            spotSum += spotMicros[i];
+        }
+        ElectricityPriceService.PriceSummary summary = prices.isEmpty()
+            ? new ElectricityPriceService.PriceSummary(day.getRegion(), 0, null, null, null, null)
+            : new ElectricityPriceService.PriceSummary(day.getRegion(), prices.size(), null,
+                prices.get(lowest), prices.get(highest), PriceMicros.toDouble(spotSum) / prices.size());
+
+        // Ranking over the day's intervals (1 = lowest spot price), indexed by interval
+        int[] slotRanks = new int[day.getSlotCount()];
+        int[] ranks = rankBySpotPrice(spotMicros);
+        for (int i = 0; i < prices.size(); i++) {
+            int index = DayPrices.intervalIndexOf(prices.get(i), day.getDate(), day.getResolutionMinutes());
+            if (index >= 0 && index < slotRanks.length) {
+                slotRanks[index] = ranks[i];
+            }
+        }
+
+        // Hour view for the dashboard: the price itself for hourly data, an average otherwise
+        ElectricityPrice[] hours = new ElectricityPrice[HOURS_PER_DAY];
+        long[] hourSpotMicros = new long[HOURS_PER_DAY];
+        hourlyView(day, hours, hourSpotMicros);
+
+        // Create ranking for all hours (1 = lowest spot price, 24 = highest)
+        int presentCount = 0;
+        int[] presentHours = new int[HOURS_PER_DAY];
+        long[] presentSpotMicros = new long[HOURS_PER_DAY];
+        for (int hour = 0; hour < HOURS_PER_DAY; hour++) {
+            if (hours[hour] != null) {
+                presentHours[presentCount] = hour;
+                presentSpotMicros[presentCount] = hourSpotMicros[hour];
+                presentCount++;
+            }
+        }
+        int[] hourRanks = rankBySpotPrice(Arrays.copyOf(presentSpotMicros, presentCount));
+
+        Map<Integer, ElectricityPrice> hourlyPrices = new HashMap<>();
+        Map<Integer, Integer> spotPriceRanks = new HashMap<>();
+        Map<Integer, String> rowClasses = new HashMap<>();
+        for (int i = 0; i < presentCount; i++) {
+            int hour = presentHours[i];
+            hourlyPrices.put(hour, hours[hour]);
+            spotPriceRanks.put(hour, hourRanks[i]);
+            String rowClass = rowClassForRank(hourRanks[i]);
+            if (rowClass != null) {
+                rowClasses.put(hour, rowClass);
+            }
+        }
+
+        return new DaySnapshot(day, summary, slotRanks,
+            Collections.unmodifiableList(Arrays.asList(hours)),
+            Collections.unmodifiableMap(hourlyPrices),
+            Collections.unmodifiableMap(spotPriceRanks),
+            Collections.unmodifiableMap(rowClasses));
+    }
+
+    /**
+     * Content hash of the day's prices. Deterministic across restarts and instances, and unchanged
+     * when a refetch stores identical prices.
+     */
+    private static String versionOf(DayPrices day) {
+        List<ElectricityPrice> prices = day.getPrices();
+        long hash = 1;
+        for (int i = 0; i < prices.size(); i++) {
+            ElectricityPrice price = prices.get(i);
+            hash = 31 * hash + (price.getIntervalIndex() != null ? price.getIntervalIndex() : price.getHour());
+            hash = 31 * hash + day.getSpotMicros(i);
+            hash = 31 * hash + day.getTotalMicros(i);
+        }
+        return prices.size() + "-" + Long.toHexString(hash);
+    }
+
+    /**
+     * Rank of each price by spot price, aligned with the input (1 = lowest, ties keep input order).
+     * Sorts primitive keys of the micro-DKK price shifted left with the position in the low bits,
+     * so no boxing or comparator is involved; NUMERIC(10,6) prices fit comfortably in the high bits.
+     */
+    public static int[] rankBySpotPrice(long[] spotMicros) {
+        if (spotMicros.length > RANK_INDEX_MASK + 1) {
+            throw new IllegalArgumentException("Cannot rank more than " + (RANK_INDEX_MASK + 1) + " prices at once");
+        }
+        long[] keys = new long[spotMicros.length];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = (spotMicros[i] << RANK_INDEX_BITS) | i;
+        }
+        Arrays.sort(keys);
+        int[] ranks = new int[keys.length];
+        for (int position = 0; position < keys.length; position++) {
+            ranks[(int) (keys[position] & RANK_INDEX_MASK)] = position + 1;
+        }
+        return ranks;
+    }
+
+    /**
+     * Green background gradient for the 8 lowest spot prices, null for all other ranks
+     */
+    static String rowClassForRank(int rank) {
+        if (rank > HIGHLIGHTED_HOURS) return null;
+        if (rank == 1) return "bg-green-300"; // lowest price
+        if (rank == 2) return "bg-green-200"; // 2nd lowest
+        if (rank <= 4) return "bg-green-100"; // 3rd-4th lowest
+        return "bg-green-50"; // 5th-8th lowest
+    }
+
+    /**
+     * One price per local hour of day. Hours covered by a single interval use that price;
+     * hours with several intervals (quarter hours, or the repeated autumn DST hour) are averaged.
+     */
+    private static void hourlyView(DayPrices day, ElectricityPrice[] hours, long[] hourSpotMicros) {
+        List<ElectricityPrice> prices = day.getPrices();
+        int[] intervalCounts = new int[HOURS_PER_DAY];
+        int[] firstInterval = new int[HOURS_PER_DAY];
+        for (int i = 0; i < prices.size(); i++) {
+            int hour = hourOf(prices.get(i));
+            if (intervalCounts[hour]++ == 0) {
+                firstInterval[hour] = i;
+            }
+            hourSpotMicros[hour] += day.getSpotMicros(i);
+        }
+
+        for (int hour = 0; hour < HOURS_PER_DAY; hour++) {
+            if (intervalCounts[hour] == 1) {
+                hours[hour] = prices.get(firstInterval[hour]);
+            } else if (intervalCounts[hour] > 1) {
+                hourSpotMicros[hour] = PriceMicros.average(hourSpotMicros[hour], intervalCounts[hour]);
+                hours[hour] = averageOf(prices, firstInterval[hour], intervalCounts[hour], hour, hourSpotMicros[hour]);
+            }
+        }
+    }
+
+    private static int hourOf(ElectricityPrice price) {
+        return price.getHour() != null ? price.getHour() : price.getPriceDateTime().getHour();
+    }
+
+    // Intervals of one hour are contiguous in the time ordered list
+    private static ElectricityPrice averageOf(List<ElectricityPrice> prices, int from, int count, int hour,
+                                              long averageSpotMicros) {
+        List<ElectricityPrice> intervals = prices.subList(from, from + count);
+        ElectricityPrice first = intervals.get(0);
+        ElectricityPrice average = new ElectricityPrice(
+            first.getPriceDateTime().withMinute(0),
+            first.getPriceDate(),
+            hour,
+            PriceMicros.toBigDecimal(averageSpotMicros),
+            average(intervals, ElectricityPrice::getTransmissionTariff),
+            average(intervals, ElectricityPrice::getSystemTariff),
+            average(intervals, ElectricityPrice::getElectricityTax),
+            first.getRegion());
+        average.setResolutionMinutes(PriceIntervals.HOURLY);
+        average.setIntervalIndex(PriceIntervals.indexOf(first.getPriceDate(), average.getPriceDateTime(),
+            PriceIntervals.HOURLY));
+        LocalDateTime updatedAt = intervals.stream()
+            .map(ElectricityPrice::getUpdatedAt)
+            .max(Comparator.naturalOrder())
+            .orElse(first.getUpdatedAt());
+        average.setUpdatedAt(updatedAt);
+        return average;
+    }
+
+    private static BigDecimal average(List<ElectricityPrice> intervals, Function<ElectricityPrice, BigDecimal> component) {
+        long sum = 0;
+        for (ElectricityPrice interval : intervals) {
+            sum += PriceMicros.of(component.apply(interval));
+        }
+        return PriceMicros.toBigDecimal(PriceMicros.average(sum, intervals.size()));
+    }
+
+    public DayPrices getDay() {
+        return day;
+    }
+
+    /**
+     * Data version of the day, changes whenever stored prices change
+     */
+    public String getVersion() {
+        return version;
+    }
+
+    /**
+     * Latest update time of the day's prices, null for an empty day
+     */
+    public LocalDateTime getLastModified() {
+        return lastModified;
+    }
+
+    public String getRegion() {
+        return day.getRegion();
+    }
+
+    public LocalDate getDate() {
+        return day.getDate();
+    }
+
+    public int getResolutionMinutes() {
+        return day.getResolutionMinutes();
+    }
+
+    public List<ElectricityPrice> getPrices() {
+        return day.getPrices();
+    }
+
+    /**
+     * One entry per interval of the day, null for missing intervals
+     */
+    public List<ElectricityPrice> getSlots() {
+        return day.getSlots();
+    }
+
+    /**
+     * Spot price rank of an interval (1 = lowest), 0 when the interval has no price
+     */
+    public int getSlotRank(int intervalIndex) {
+        return intervalIndex >= 0 && intervalIndex < slotRanks.length ? slotRanks[intervalIndex] : 0;
+    }
+
+    /**
+     * 24 entries indexed by hour of day, null for missing hours
+     */
+    public List<ElectricityPrice> getHourlySlots() {
+        return hourlySlots;
+    }
+
+    public ElectricityPrice getPriceForHour(int hour) {
+        return hour >= 0 && hour < HOURS_PER_DAY ? hourlySlots.get(hour) : null;
+    }
+
+    /**
+     * The price of the interval containing the given local time
+     */
+    public ElectricityPrice getPriceAt(LocalDateTime dateTime) {
+        return day.getPriceAt(dateTime);
+    }
+
+    public boolean isEmpty() {
+        return day.isEmpty();
+    }
+
+    /**
+     * Day statistics without a current price; see {@link ElectricityPriceService#getTodaysSummary(String)}
+     */
+    public ElectricityPriceService.PriceSummary getSummary() {
+        return summary;
+    }
+
+    public Map<Integer, ElectricityPrice> getHourlyPrices() {
+        return hourlyPrices;
+    }
+
+    public Map<Integer, Integer> getSpotPriceRanks() {
+        return spotPriceRanks;
+    }
+
+    public Map<Integer, String> getRowClasses() {
+        return rowClasses;
+    }
+}
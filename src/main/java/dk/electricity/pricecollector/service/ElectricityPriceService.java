@@ -1,102 +1,304 @@
 package dk.electricity.pricecollector.service;
 
+import dk.electricity.pricecollector.config.ReplicaRoutingDataSource;
 import dk.electricity.pricecollector.model.ElectricityPrice;
+import dk.electricity.pricecollector.model.HourlyPriceAggregate;
+import dk.electricity.pricecollector.model.PriceIntervals;
+import dk.electricity.pricecollector.repository.ElectricityPriceBatchRepository;
 import dk.electricity.pricecollector.repository.ElectricityPriceRepository;
+import dk.electricity.pricecollector.repository.PricePartitionRepository;
+import dk.electricity.pricecollector.repository.RegionRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 @Service
 @Transactional
 public class ElectricityPriceService {
     
     private static final Logger logger = LoggerFactory.getLogger(ElectricityPriceService.class);
-    private static final String DEFAULT_REGION = "DK1"; // West Denmark
+    private static final int MAX_CACHED_RECENT_HOURS = 48; // Longer windows go straight to the database
     
     @Autowired
     private ElectricityPriceRepository repository;
     
+    @Autowired
+    private ElectricityPriceBatchRepository batchRepository;
+    
+    @Autowired
+    private PricePartitionRepository partitionRepository;
+    
+    @Autowired
+    private RegionRepository regionRepository;
+    
+    @Autowired
+    private DayPriceCache dayPriceCache;
+    
+    @Autowired
+    private PriceSeriesStore priceSeriesStore;
+    
+    @Autowired
+    private RetentionService retentionService;
+    
+    @Autowired
+    private TariffEngine tariffEngine;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
+    @Autowired
+    private PriceMetrics priceMetrics;
+    
+    @Autowired
+    private RegionRegistry regionRegistry;
+    
+    // Only present when read replicas are enabled
+    @Autowired
+    private ObjectProvider<ReplicaRoutingDataSource> replicaRouting;
+    
     /**
-     * Get current electricity price for the default region (DK1 - West Denmark)
+     * Get current electricity price for the default region
      */
+    @Transactional(readOnly = true)
     public Optional<ElectricityPrice> getCurrentPrice() {
-        return getCurrentPrice(DEFAULT_REGION);
+        return getCurrentPrice(regionRegistry.getDefaultRegion());
     }
     
     /**
      * Get current electricity price for a specific region
      */
+    @Transactional(readOnly = true)
     public Optional<ElectricityPrice> getCurrentPrice(String region) {
-        int currentHour = LocalDateTime.now().getHour();
-        logger.debug("Fetching current price for region: {} at hour: {}", region, currentHour);
-        return repository.findPriceForCurrentHour(region, currentHour);
+        LocalDateTime now = LocalDateTime.now();
+        logger.debug("Fetching current price for region: {} at hour: {}", region, now.getHour());
+        return Optional.ofNullable(getDayPrices(region, now.toLocalDate()).getPriceAt(now));
     }
     
     /**
-     * Get today's prices for the default region (DK1)
+     * Get today's prices for the default region
      */
+    @Transactional(readOnly = true)
     public List<ElectricityPrice> getTodaysPrices() {
-        return getTodaysPrices(DEFAULT_REGION);
+        return getTodaysPrices(regionRegistry.getDefaultRegion());
     }
     
     /**
      * Get today's prices for a specific region
      */
+    @Transactional(readOnly = true)
     public List<ElectricityPrice> getTodaysPrices(String region) {
         logger.debug("Fetching today's prices for region: {}", region);
-        return repository.findTodaysPricesForRegion(region);
+        return getDayPrices(region, LocalDate.now()).getPrices();
     }
     
     /**
-     * Get tomorrow's prices for the default region (DK1)
+     * Get tomorrow's prices for the default region
      */
+    @Transactional(readOnly = true)
     public List<ElectricityPrice> getTomorrowsPrices() {
-        return getTomorrowsPrices(DEFAULT_REGION);
+        return getTomorrowsPrices(regionRegistry.getDefaultRegion());
     }
     
     /**
      * Get tomorrow's prices for a specific region
      */
+    @Transactional(readOnly = true)
     public List<ElectricityPrice> getTomorrowsPrices(String region) {
         logger.debug("Fetching tomorrow's prices for region: {}", region);
-        return repository.findTomorrowsPricesForRegion(region);
+        return getDayPrices(region, LocalDate.now().plusDays(1)).getPrices();
     }
     
     /**
      * Get recent prices (last 24 hours) for the default region
      */
+    @Transactional(readOnly = true)
     public List<ElectricityPrice> getRecentPrices() {
-        return getRecentPrices(DEFAULT_REGION, 24);
+        return getRecentPrices(regionRegistry.getDefaultRegion(), 24);
     }
     
     /**
      * Get recent prices for a specific region and number of hours
      */
+    @Transactional(readOnly = true)
     public List<ElectricityPrice> getRecentPrices(String region, int hours) {
         LocalDateTime fromDateTime = LocalDateTime.now().minus(hours, ChronoUnit.HOURS);
         logger.debug("Fetching recent prices for region: {} from: {}", region, fromDateTime);
-        return repository.findRecentPricesForRegion(region, fromDateTime);
+        
+        if (hours > MAX_CACHED_RECENT_HOURS) {
+            return repository.findRecentPricesForRegion(region, fromDateTime.toLocalDate(), fromDateTime);
+        }
+        
+        // Same result as the repository query (everything from fromDateTime onwards, newest first),
+        // assembled from the cached days instead of a database round-trip
+        List<ElectricityPrice> recentPrices = new ArrayList<>();
+        LocalDate lastDate = LocalDate.now().plusDays(1);
+        for (LocalDate date = fromDateTime.toLocalDate(); !date.isAfter(lastDate); date = date.plusDays(1)) {
+            for (ElectricityPrice price : getDayPrices(region, date).getPrices()) {
+                if (!price.getPriceDateTime().isBefore(fromDateTime)) {
+                    recentPrices.add(price);
+                }
+            }
+        }
+        recentPrices.sort(Comparator.comparing(ElectricityPrice::getPriceDateTime).reversed());
+        return recentPrices;
+    }
+    
+    /**
+     * Get all prices for a specific date and region, served from the day price cache
+     */
+    @Transactional(readOnly = true)
+    public DayPrices getDayPrices(String region, LocalDate date) {
+        return getDaySnapshot(region, date).getDay();
+    }
+    
+    /**
+     * Get the precomputed snapshot (summary, ranking, hourly views) for a date and region
+     */
+    @Transactional(readOnly = true)
+    public DaySnapshot getDaySnapshot(String region, LocalDate date) {
+        return dayPriceCache.get(region, date, () -> loadDaySnapshot(region, date));
+    }
+    
+    /**
+     * Get yesterday's, today's and tomorrow's snapshots of a region for the dashboard pages.
+     * Days missing from the cache are loaded together in one range query.
+     */
+    @Transactional(readOnly = true)
+    public DashboardView getDashboardView(String region) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDate today = now.toLocalDate();
+        Map<LocalDate, DaySnapshot> days = dayPriceCache.getAll(region,
+            List.of(today.minusDays(1), today, today.plusDays(1)), missing -> loadDaySnapshots(region, missing));
+        return new DashboardView(region, now, days.get(today.minusDays(1)), days.get(today), days.get(today.plusDays(1)));
+    }
+    
+    private Map<LocalDate, DaySnapshot> loadDaySnapshots(String region, List<LocalDate> dates) {
+        return priceMetrics.timeSnapshot(() -> {
+            LocalDate fromDate = Collections.min(dates);
+            LocalDate toDate = Collections.max(dates);
+            Map<LocalDate, List<ElectricityPrice>> pricesByDate = new HashMap<>();
+            for (ElectricityPrice price : repository.findPricesForDatesAndRegion(region, fromDate, toDate)) {
+                pricesByDate.computeIfAbsent(price.getPriceDate(), date -> new ArrayList<>()).add(price);
+            }
+            Map<LocalDate, DaySnapshot> snapshots = new HashMap<>();
+            for (LocalDate date : dates) {
+                snapshots.put(date, DaySnapshot.of(region, date, pricesByDate.getOrDefault(date, List.of())));
+            }
+            return snapshots;
+        });
+    }
+    
+    /**
+     * Get the precomputed snapshot for today
+     */
+    @Transactional(readOnly = true)
+    public DaySnapshot getTodaysSnapshot(String region) {
+        return getDaySnapshot(region, LocalDate.now());
+    }
+    
+    /**
+     * Get the precomputed snapshot for tomorrow
+     */
+    @Transactional(readOnly = true)
+    public DaySnapshot getTomorrowsSnapshot(String region) {
+        return getDaySnapshot(region, LocalDate.now().plusDays(1));
+    }
+    
+    /**
+     * Rebuild and publish a day's snapshot from the database, e.g. after ingestion has stored new prices
+     */
+    public DaySnapshot refreshDayPrices(String region, LocalDate date) {
+        DaySnapshot snapshot = loadDaySnapshot(region, date);
+        dayPriceCache.put(snapshot);
+        return snapshot;
+    }
+    
+    private DaySnapshot loadDaySnapshot(String region, LocalDate date) {
+        return priceMetrics.timeSnapshot(
+            () -> DaySnapshot.of(region, date, repository.findPricesForDateAndRegion(region, date)));
+    }
+    
+    /**
+     * Get a day's prices with the tariffs of a grid company applied, computed from the cached spot prices
+     */
+    @Transactional(readOnly = true)
+    public List<TariffEngine.TariffedPrice> getPricesWithTariffs(String region, LocalDate date, String gridCompany) {
+        return tariffEngine.apply(gridCompany, getDayPrices(region, date));
+    }
+    
+    /**
+     * Get hit/miss/eviction counters for the day price cache
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public DayPriceCache.CacheStats getCacheStats() {
+        return dayPriceCache.getStats();
+    }
+    
+    /**
+     * Get per-hour aggregates for a date range, averaging quarter-hour intervals in the database
+     */
+    @Transactional(readOnly = true)
+    public List<HourlyPriceAggregate> getHourlyAggregates(String region, LocalDate fromDate, LocalDate toDate) {
+        return repository.findHourlyAggregates(region, fromDate, toDate);
+    }
+    
+    /**
+     * Get spot price statistics for a date range from the in-memory price series, e.g. over several years.
+     * Runs without a transaction so it does not borrow a database connection.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public PriceSeries.Statistics getPriceStatistics(String region, LocalDate fromDate, LocalDate toDate, double... percentiles) {
+        return priceSeriesStore.slice(region, fromDate.atStartOfDay(), toDate.plusDays(1).atStartOfDay())
+            .statistics(percentiles);
+    }
+    
+    /**
+     * Compare the spot prices of several regions over a date range, from the in-memory price series.
+     * Runs without a transaction so it does not borrow a database connection.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public PriceComparison comparePrices(List<String> regions, LocalDate fromDate, LocalDate toDate, boolean includeSlots) {
+        LocalDateTime start = fromDate.atStartOfDay();
+        LocalDateTime end = toDate.plusDays(1).atStartOfDay();
+        List<PriceSeries> slices = regions.stream()
+            .map(region -> priceSeriesStore.slice(region, start, end))
+            .toList();
+        return PriceComparison.of(slices, includeSlots);
     }
     
     /**
      * Get prices for a specific date range
      */
+    @Transactional(readOnly = true)
     public List<ElectricityPrice> getPricesInDateRange(String region, LocalDateTime startDateTime, LocalDateTime endDateTime) {
         logger.debug("Fetching prices for region: {} between {} and {}", region, startDateTime, endDateTime);
-        return repository.findByRegionAndPriceDateTimeBetweenOrderByPriceDateTimeAsc(region, startDateTime, endDateTime);
+        return repository.findPricesInRange(region, startDateTime.toLocalDate(), endDateTime.toLocalDate(),
+            startDateTime, endDateTime);
     }
     
     /**
      * Get the lowest price for today
      */
+    @Transactional(readOnly = true)
     public Optional<ElectricityPrice> getTodaysLowestPrice(String region) {
         logger.debug("Fetching today's lowest price for region: {}", region);
         return repository.findLowestPriceForDate(region, LocalDate.now());
@@ -105,6 +307,7 @@ public class ElectricityPriceService {
     /**
      * Get the highest price for today
      */
+    @Transactional(readOnly = true)
     public Optional<ElectricityPrice> getTodaysHighestPrice(String region) {
         logger.debug("Fetching today's highest price for region: {}", region);
         return repository.findHighestPriceForDate(region, LocalDate.now());
@@ -115,7 +318,13 @@ public class ElectricityPriceService {
      */
     public ElectricityPrice savePrice(ElectricityPrice price) {
         logger.debug("Saving electricity price: {}", price);
-        return repository.save(price);
+        partitionRepository.ensurePartitions(List.of(YearMonth.from(price.getPriceDate())));
+        regionRepository.register(price.getRegion());
+        ElectricityPrice saved = repository.save(price);
+        replicaRouting.ifAvailable(ReplicaRoutingDataSource::primaryWrittenAfterCommit);
+        dayPriceCache.invalidateAfterCommit(saved.getRegion(), saved.getPriceDate());
+        priceSeriesStore.refreshDayAfterCommit(saved.getRegion(), saved.getPriceDate());
+        return saved;
     }
     
     /**
@@ -123,34 +332,82 @@ public class ElectricityPriceService {
      */
     public List<ElectricityPrice> savePrices(List<ElectricityPrice> prices) {
         logger.debug("Saving {} electricity prices", prices.size());
-        return repository.saveAll(prices);
+        ensurePartitionsFor(prices);
+        // The region id converter only maps known codes; the batch path registers its regions itself
+        prices.stream().map(ElectricityPrice::getRegion).distinct().forEach(regionRepository::register);
+        List<ElectricityPrice> saved = repository.saveAll(prices);
+        byDay(saved).forEach(this::pricesStored);
+        return saved;
+    }
+    
+    /**
+     * Insert new prices and update changed ones in JDBC batches (bulk ingestion path)
+     */
+    public ElectricityPriceBatchRepository.UpsertResult upsertPrices(List<ElectricityPrice> prices) {
+        ensurePartitionsFor(prices);
+        // One upsert per region, so the stored rows are counted per region; callers usually pass a single one
+        Map<String, List<ElectricityPrice>> byRegion = prices.stream()
+            .collect(Collectors.groupingBy(ElectricityPrice::getRegion, LinkedHashMap::new, Collectors.toList()));
+        ElectricityPriceBatchRepository.UpsertResult result = ElectricityPriceBatchRepository.UpsertResult.EMPTY;
+        for (Map.Entry<String, List<ElectricityPrice>> region : byRegion.entrySet()) {
+            ElectricityPriceBatchRepository.UpsertResult regionResult = batchRepository.upsert(region.getValue());
+            priceMetrics.rowsStored(region.getKey(), regionResult);
+            result = result.plus(regionResult);
+        }
+        logger.debug("Upserted {} electricity prices: {}", prices.size(), result);
+        if (result.hasChanges()) {
+            byDay(prices).forEach(this::pricesStored);
+        }
+        return result;
+    }
+    
+    private static Map<RegionDate, List<ElectricityPrice>> byDay(List<ElectricityPrice> prices) {
+        return prices.stream().collect(Collectors.groupingBy(
+            price -> new RegionDate(price.getRegion(), price.getPriceDate()), LinkedHashMap::new, Collectors.toList()));
+    }
+    
+    // All take effect once the transaction commits, in this order: read replicas must catch up,
+    // the cache entry is dropped, the price series takes the day's rows and subscribers are notified.
+    // The WAL position comes first, so a reload after the invalidation cannot hit a lagging replica.
+    private void pricesStored(RegionDate day, List<ElectricityPrice> prices) {
+        replicaRouting.ifAvailable(ReplicaRoutingDataSource::primaryWrittenAfterCommit);
+        dayPriceCache.invalidateAfterCommit(day.region(), day.date());
+        priceSeriesStore.storeDayAfterCommit(day.region(), day.date(), prices);
+        eventPublisher.publishEvent(new PriceUpdateEvent(PriceUpdateEvent.Type.PRICES_STORED, day.region(), day.date()));
+    }
+    
+    // Rows for a month without a partition would be rejected by PostgreSQL, e.g. for old backfills
+    private void ensurePartitionsFor(List<ElectricityPrice> prices) {
+        partitionRepository.ensurePartitions(prices.stream()
+            .map(price -> YearMonth.from(price.getPriceDate()))
+            .distinct()
+            .toList());
+    }
+    
+    /**
+     * Check whether the database holds a price for every interval of a day, hourly or quarter-hourly
+     */
+    @Transactional(readOnly = true)
+    public boolean hasCompleteDay(String region, LocalDate date) {
+        return repository.countPricesForDate(region, date, PriceIntervals.HOURLY) == PriceIntervals.slotsPerDay(date, PriceIntervals.HOURLY)
+            || repository.countPricesForDate(region, date, PriceIntervals.QUARTER_HOURLY) == PriceIntervals.slotsPerDay(date, PriceIntervals.QUARTER_HOURLY);
     }
     
     /**
      * Check if price already exists for specific datetime and region
      */
+    @Transactional(readOnly = true)
     public boolean priceExists(LocalDateTime priceDateTime, String region) {
-        return repository.existsByPriceDateTimeAndRegion(priceDateTime, region);
+        return repository.existsByRegionAndPriceDateAndPriceDateTime(region, priceDateTime.toLocalDate(), priceDateTime);
     }
     
     /**
-     * Delete old prices (older than specified number of days)
+     * Delete old prices (older than specified number of days).
+     * Runs without a surrounding transaction so every retention chunk commits on its own.
      */
-    @Transactional
-    public int cleanupOldPrices(int daysToKeep) {
-        LocalDateTime cutoffDate = LocalDateTime.now().minus(daysToKeep, ChronoUnit.DAYS);
-        logger.info("Cleaning up prices older than: {}", cutoffDate);
-        
-        List<ElectricityPrice> oldPrices = repository.findAll().stream()
-            .filter(price -> price.getPriceDateTime().isBefore(cutoffDate))
-            .toList();
-        
-        if (!oldPrices.isEmpty()) {
-            repository.deleteAll(oldPrices);
-            logger.info("Deleted {} old price records", oldPrices.size());
-        }
-        
-        return oldPrices.size();
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public long cleanupOldPrices(int daysToKeep) {
+        return retentionService.purgeOlderThan(LocalDateTime.now().minus(daysToKeep, ChronoUnit.DAYS)).getRowsDeleted();
     }
     
     /**
@@ -158,72 +415,42 @@ public class ElectricityPriceService {
      */
     @Transactional
     public void deletePricesForDate(LocalDate date, String region) {
-        List<ElectricityPrice> pricesToDelete = repository.findPricesForDateAndRegion(region, date);
-        
-        if (!pricesToDelete.isEmpty()) {
-            repository.deleteAll(pricesToDelete);
-            logger.info("Deleted {} electricity prices for date {} in region {}", 
-                pricesToDelete.size(), date, region);
+        int deleted = repository.deleteByRegionAndPriceDate(region, date);
+        if (deleted > 0) {
+            logger.info("Deleted {} electricity prices for date {} in region {}", deleted, date, region);
+        }
+        if (deleted > 0) {
+            replicaRouting.ifAvailable(ReplicaRoutingDataSource::primaryWrittenAfterCommit);
         }
+        dayPriceCache.invalidateAfterCommit(region, date);
+        priceSeriesStore.refreshDayAfterCommit(region, date);
     }
     
     /**
      * Get statistics summary for the current day
      */
+    @Transactional(readOnly = true)
     public PriceSummary getTodaysSummary(String region) {
-        List<ElectricityPrice> todaysPrices = getTodaysPrices(region);
+        LocalDateTime now = LocalDateTime.now();
+        DaySnapshot snapshot = getDaySnapshot(region, now.toLocalDate());
         
-        if (todaysPrices.isEmpty()) {
-            return new PriceSummary(region, 0, null, null, null, null);
+        if (snapshot.isEmpty()) {
+            return snapshot.getSummary();
         }
         
-        ElectricityPrice lowest = todaysPrices.stream()
-            .min((p1, p2) -> p1.getSpotPrice().compareTo(p2.getSpotPrice()))
-            .orElse(null);
-            
-        ElectricityPrice highest = todaysPrices.stream()
-            .max((p1, p2) -> p1.getSpotPrice().compareTo(p2.getSpotPrice()))
-            .orElse(null);
-            
-        ElectricityPrice current = getCurrentPrice(region).orElse(null);
-        
-        // Calculate average spot price
-        double avgSpotPrice = todaysPrices.stream()
-            .mapToDouble(p -> p.getSpotPrice().doubleValue())
-            .average()
-            .orElse(0.0);
-        
-        return new PriceSummary(region, todaysPrices.size(), current, lowest, highest, avgSpotPrice);
+        return snapshot.getSummary().withCurrentPrice(snapshot.getPriceAt(now));
     }
     
     /**
      * Get statistics summary for tomorrow
      */
+    @Transactional(readOnly = true)
     public PriceSummary getTomorrowsSummary(String region) {
-        List<ElectricityPrice> tomorrowsPrices = getTomorrowsPrices(region);
-        
-        if (tomorrowsPrices.isEmpty()) {
-            return new PriceSummary(region, 0, null, null, null, null);
-        }
-        
-        ElectricityPrice lowest = tomorrowsPrices.stream()
-            .min((p1, p2) -> p1.getSpotPrice().compareTo(p2.getSpotPrice()))
-            .orElse(null);
-            
-        ElectricityPrice highest = tomorrowsPrices.stream()
-            .max((p1, p2) -> p1.getSpotPrice().compareTo(p2.getSpotPrice()))
-            .orElse(null);
-            
-        // For tomorrow, we don't have a "current" price, use null or first hour
-        ElectricityPrice current = null; // No current price for tomorrow
-        
-        // Calculate average spot price
-        double avgSpotPrice = tomorrowsPrices.stream()
-            .mapToDouble(p -> p.getSpotPrice().doubleValue())
-            .average()
-            .orElse(0.0);
-        
-        return new PriceSummary(region, tomorrowsPrices.size(), current, lowest, highest, avgSpotPrice);
+        // For tomorrow, we don't have a "current" price
+        return getTomorrowsSnapshot(region).getSummary();
+    }
+    
+    private record RegionDate(String region, LocalDate date) {
     }
     
     /**
@@ -247,6 +474,13 @@ public class ElectricityPriceService {
             this.avgSpotPrice = avgSpotPrice;
         }
         
+        /**
+         * Copy of this summary with the given current price, the statistics are shared
+         */
+        public PriceSummary withCurrentPrice(ElectricityPrice currentPrice) {
+            return new PriceSummary(region, priceCount, currentPrice, lowestPrice, highestPrice, avgSpotPrice);
+        }
+        
         // Getters
         public String getRegion() { return region; }
         public int getPriceCount() { return priceCount; }
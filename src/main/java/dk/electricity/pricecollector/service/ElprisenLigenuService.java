@@ -1,21 +1,38 @@
 package dk.electricity.pricecollector.service;
 
 import dk.electricity.pricecollector.model.ElectricityPrice;
+import dk.electricity.pricecollector.model.PriceIntervals;
+import dk.electricity.pricecollector.model.PriceMicros;
+import dk.electricity.pricecollector.repository.ElectricityPriceBatchRepository.UpsertResult;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpStatusCodeException;
 import org.springframework.web.client.RestTemplate;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.math.BigDecimal;
 import java.math.MathContext;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.OffsetDateTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -24,21 +41,47 @@ import java.util.stream.Collectors;
 public class ElprisenLigenuService {
     
     private static final Logger logger = LoggerFactory.getLogger(ElprisenLigenuService.class);
-    private static final String API_BASE_URL = "https://www.elprisenligenu.dk/api/v1/prices/";
+    private static final Logger rowLogger = LoggerFactory.getLogger("dk.electricity.pricecollector.ingest.rows");
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy/MM-dd");
-    
-    // Standard Danish tariffs and taxes (DKK per kWh)
-    private static final BigDecimal TRANSMISSION_TARIFF = new BigDecimal("0.058");
-    private static final BigDecimal SYSTEM_TARIFF = new BigDecimal("0.0125");
-    private static final BigDecimal ELECTRICITY_TAX = new BigDecimal("0.090");
+    private static final ZoneId COPENHAGEN = ZoneId.of("Europe/Copenhagen");
+    private static final int QUARTER_HOURLY_SLOTS = 96;
     
     @Autowired
     private ElectricityPriceService electricityPriceService;
     
-    private final RestTemplate restTemplate = new RestTemplate();
+    @Autowired
+    private PriceMetrics priceMetrics;
+    
+    @Autowired
+    private UpstreamCircuitBreaker circuitBreaker;
+    
+    @Autowired
+    private RegionRegistry regionRegistry;
+    
+    private final RestTemplate restTemplate;
     private final ObjectMapper objectMapper;
+    private final String apiBaseUrl;
+    private final TariffEngine tariffEngine;
+    
+    @Value("${price-collector.ingest.streaming-parser:true}")
+    private boolean streamingParser;
+    
+    // With the row logger at TRACE, every n-th interval of a day is logged; 0 or 1 logs every interval
+    @Value("${price-collector.ingest.row-trace-every:4}")
+    private int rowTraceEvery = 4;
     
-    public ElprisenLigenuService() {
+    public ElprisenLigenuService(RestTemplateBuilder restTemplateBuilder,
+                                 @Value("${price-collector.api.base-url:https://www.elprisenligenu.dk/api/v1/prices/}") String apiBaseUrl,
+                                 @Value("${price-collector.api.connect-timeout:5s}") Duration connectTimeout,
+                                 @Value("${price-collector.api.read-timeout:10s}") Duration readTimeout,
+                                 TariffEngine tariffEngine) {
+        // Per-request timeouts so a slow upstream cannot stall scheduled or bulk fetches
+        this.restTemplate = restTemplateBuilder
+                .setConnectTimeout(connectTimeout)
+                .setReadTimeout(readTimeout)
+                .build();
+        this.apiBaseUrl = apiBaseUrl;
+        this.tariffEngine = tariffEngine;
         this.objectMapper = new ObjectMapper();
         this.objectMapper.registerModule(new JavaTimeModule());
     }
@@ -58,107 +101,289 @@ public class ElprisenLigenuService {
     }
     
     /**
-     * Fetch spot prices for a specific date and region
+     * Fetch spot prices for a specific date and region; empty when they could not be fetched
      */
     public List<ElectricityPrice> fetchPricesForDate(LocalDate date, String region) {
+        return fetchDay(date, region).getPrices();
+    }
+    
+    /**
+     * Fetch spot prices for a specific date and region, reporting why none were returned.
+     * Calls are refused without contacting the API while the upstream circuit breaker is open.
+     */
+    public FetchResult fetchDay(LocalDate date, String region) {
+        if (!circuitBreaker.tryAcquire()) {
+            logger.debug("Upstream circuit open, not fetching prices for date: {} region: {}", date, region);
+            return new FetchResult(FetchResult.Outcome.CIRCUIT_OPEN, List.of());
+        }
+        
+        Timer.Sample fetchSample = priceMetrics.start();
+        String status = PriceMetrics.STATUS_IO_ERROR;
+        long[] parseNanos = {0};
+        FetchResult result = new FetchResult(FetchResult.Outcome.FAILED, List.of());
         try {
             String url = buildApiUrl(date, region);
-            logger.info("Fetching prices from: {}", url);
+            logger.debug("Fetching prices from: {}", url);
             
-            String response = restTemplate.getForObject(url, String.class);
-            if (response == null) {
-                logger.warn("No response received from API for date: {} region: {}", date, region);
-                return List.of();
+            List<ElectricityPrice> prices;
+            if (streamingParser) {
+                int[] statusCode = {0};
+                List<ElectricityPrice> parsed = restTemplate.execute(url, HttpMethod.GET, null, response -> {
+                    statusCode[0] = response.getStatusCode().value();
+                    Timer.Sample parseSample = priceMetrics.start();
+                    List<ElectricityPrice> day = parseStreaming(response.getBody(), region, date);
+                    parseNanos[0] = priceMetrics.parseCompleted(parseSample, region, "streaming");
+                    return day;
+                });
+                status = String.valueOf(statusCode[0]);
+                prices = parsed != null ? parsed : List.of();
+            } else {
+                ResponseEntity<String> response = restTemplate.getForEntity(url, String.class);
+                status = String.valueOf(response.getStatusCode().value());
+                if (response.getBody() == null) {
+                    logger.warn("No response received from API for date: {} region: {}", date, region);
+                    prices = List.of();
+                } else {
+                    Timer.Sample parseSample = priceMetrics.start();
+                    prices = parseBuffered(response.getBody(), region, date);
+                    parseNanos[0] = priceMetrics.parseCompleted(parseSample, region, "buffered");
+                }
             }
             
-            SpotPrice[] spotPrices = objectMapper.readValue(response, SpotPrice[].class);
-            return Arrays.stream(spotPrices)
-                    .map(spotPrice -> convertToElectricityPrice(spotPrice, region, date))
-                    .collect(Collectors.toList());
+            circuitBreaker.recordSuccess();
+            priceMetrics.rowsFetched(region, prices.size());
+            result = new FetchResult(FetchResult.Outcome.OK, prices);
+            return result;
                     
+        } catch (HttpClientErrorException.NotFound e) {
+            // Day-ahead prices for tomorrow are not published yet
+            status = String.valueOf(e.getStatusCode().value());
+            circuitBreaker.recordSuccess();
+            logger.debug("No prices published yet for date: {} region: {}", date, region);
+            result = new FetchResult(FetchResult.Outcome.NOT_PUBLISHED, List.of());
+            return result;
+        } catch (HttpStatusCodeException e) {
+            status = String.valueOf(e.getStatusCode().value());
+            if (e.getStatusCode().is5xxServerError() || e.getStatusCode().value() == 429) {
+                circuitBreaker.recordFailure();
+            } else {
+                circuitBreaker.recordSuccess();
+            }
+            logger.error("Error fetching prices for date: {} region: {}", date, region, e);
+            return result;
         } catch (Exception e) {
+            circuitBreaker.recordFailure();
             logger.error("Error fetching prices for date: {} region: {}", date, region, e);
-            return List.of();
+            return result;
+        } finally {
+            long fetchNanos = priceMetrics.fetchCompleted(fetchSample, region, date, status);
+            logFetchSummary(region, date, status, result.getPrices(), fetchNanos, parseNanos[0]);
+        }
+    }
+    
+    /**
+     * One logfmt summary event per fetched day instead of a line per price
+     */
+    private void logFetchSummary(String region, LocalDate date, String status, List<ElectricityPrice> prices,
+                                 long fetchNanos, long parseNanos) {
+        if (!logger.isInfoEnabled()) {
+            return;
+        }
+        BigDecimal minSpot = null;
+        BigDecimal maxSpot = null;
+        for (ElectricityPrice price : prices) {
+            BigDecimal spot = price.getSpotPrice();
+            if (minSpot == null || spot.compareTo(minSpot) < 0) {
+                minSpot = spot;
+            }
+            if (maxSpot == null || spot.compareTo(maxSpot) > 0) {
+                maxSpot = spot;
+            }
         }
+        logger.info("event=prices_fetched region={} date={} status={} rows={} resolution_minutes={} " +
+                "min_spot={} max_spot={} fetch_ms={} parse_ms={}",
+                region, date, status, prices.size(),
+                prices.isEmpty() ? null : prices.get(0).getResolutionMinutes(),
+                minSpot, maxSpot, fetchNanos / 1_000_000, parseNanos / 1_000_000);
     }
     
     /**
-     * Fetch and save today's prices for both regions
+     * Fetch and save today's prices for every configured region
      */
-    public void fetchAndSaveTodaysPrices() {
-        fetchAndSavePricesForDate(LocalDate.now());
+    public UpsertResult fetchAndSaveTodaysPrices() {
+        return fetchAndSavePricesForDate(LocalDate.now());
     }
     
     /**
-     * Fetch and save tomorrow's prices for both regions
+     * Fetch and save tomorrow's prices for every configured region
      */
-    public void fetchAndSaveTomorrowsPrices() {
-        fetchAndSavePricesForDate(LocalDate.now().plusDays(1));
+    public UpsertResult fetchAndSaveTomorrowsPrices() {
+        return fetchAndSavePricesForDate(LocalDate.now().plusDays(1));
     }
     
     /**
-     * Fetch and save prices for a specific date for both regions
+     * Fetch and save prices for a specific date for every configured region
      */
-    public void fetchAndSavePricesForDate(LocalDate date) {
+    public UpsertResult fetchAndSavePricesForDate(LocalDate date) {
         logger.info("Fetching and saving prices for date: {}", date);
         
-        // Fetch for both DK1 and DK2 regions
-        List<String> regions = List.of("DK1", "DK2");
+        UpsertResult total = UpsertResult.EMPTY;
         
-        for (String region : regions) {
+        for (String region : regionRegistry.getCodes()) {
             List<ElectricityPrice> prices = fetchPricesForDate(date, region);
             
             if (!prices.isEmpty()) {
-                // Filter out prices that already exist
-                List<ElectricityPrice> newPrices = prices.stream()
-                        .filter(price -> !electricityPriceService.priceExists(price.getPriceDateTime(), price.getRegion()))
-                        .collect(Collectors.toList());
-                
-                if (!newPrices.isEmpty()) {
-                    electricityPriceService.savePrices(newPrices);
-                    logger.info("Saved {} new prices for region {} on {}", newPrices.size(), region, date);
-                } else {
-                    logger.info("No new prices to save for region {} on {}", region, date);
-                }
+                total = total.plus(savePrices(region, date, prices));
             } else {
                 logger.warn("No prices fetched for region {} on {}", region, date);
             }
         }
+        
+        return total;
+    }
+    
+    /**
+     * Upsert a fetched day of one region and warm its cache entry when anything changed
+     */
+    public UpsertResult savePrices(String region, LocalDate date, List<ElectricityPrice> prices) {
+        UpsertResult result = electricityPriceService.upsertPrices(prices);
+        if (result.hasChanges()) {
+            logger.info("Saved prices for region {} on {}: {} inserted, {} updated, {} unchanged",
+                    region, date, result.getInserted(), result.getUpdated(), result.getUnchanged());
+            // Warm the day cache so the next page view does not have to hit the database
+            electricityPriceService.refreshDayPrices(region, date);
+        } else {
+            logger.info("No new prices to save for region {} on {}", region, date);
+        }
+        return result;
+    }
+    
+    /**
+     * Parse a full API response that has already been read into memory
+     */
+    public List<ElectricityPrice> parseBuffered(String response, String region, LocalDate date) throws IOException {
+        SpotPrice[] spotPrices = objectMapper.readValue(response, SpotPrice[].class);
+        return Arrays.stream(spotPrices)
+                .map(spotPrice -> convertToElectricityPrice(spotPrice, region, date))
+                .collect(Collectors.toList());
+    }
+    
+    /**
+     * Parse an API response token by token straight from the response stream.
+     * Only DKK_per_kWh, time_start and time_end are materialized; the body is never held as a
+     * String and no intermediate SpotPrice objects are created.
+     */
+    public List<ElectricityPrice> parseStreaming(InputStream body, String region, LocalDate date) throws IOException {
+        List<ElectricityPrice> prices = new ArrayList<>(QUARTER_HOURLY_SLOTS);
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("Expected a JSON array of prices for date: " + date + " region: " + region);
+            }
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                BigDecimal dkkPerKWh = null;
+                OffsetDateTime timeStart = null;
+                OffsetDateTime timeEnd = null;
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.currentName();
+                    JsonToken value = parser.nextToken();
+                    if ("DKK_per_kWh".equals(field)) {
+                        dkkPerKWh = parser.getDecimalValue();
+                    } else if ("time_start".equals(field)) {
+                        timeStart = OffsetDateTime.parse(parser.getText());
+                    } else if ("time_end".equals(field)) {
+                        timeEnd = OffsetDateTime.parse(parser.getText());
+                    } else if (value == JsonToken.START_OBJECT || value == JsonToken.START_ARRAY) {
+                        parser.skipChildren();
+                    }
+                }
+                if (dkkPerKWh == null || timeStart == null) {
+                    throw new IOException("Price entry without DKK_per_kWh or time_start for date: " + date + " region: " + region);
+                }
+                prices.add(convertToElectricityPrice(dkkPerKWh, timeStart, timeEnd, region, date));
+            }
+        }
+        return prices;
     }
     
     private String buildApiUrl(LocalDate date, String region) {
         String formattedDate = date.format(DATE_FORMATTER);
-        return API_BASE_URL + formattedDate + "_" + region + ".json";
+        return regionRegistry.getBaseUrl(region, apiBaseUrl) + formattedDate + "_" + region + ".json";
     }
     
     private ElectricityPrice convertToElectricityPrice(SpotPrice spotPrice, String region, LocalDate forDate) {
+        return convertToElectricityPrice(spotPrice.dkkPerKWh, spotPrice.timeStart, spotPrice.timeEnd, region, forDate);
+    }
+    
+    private ElectricityPrice convertToElectricityPrice(BigDecimal dkkPerKWh, OffsetDateTime timeStart,
+                                                       OffsetDateTime timeEnd, String region, LocalDate forDate) {
         // Use spot price directly (already in DKK per kWh)
-        BigDecimal spotPricePerKWh = spotPrice.dkkPerKWh;
+        BigDecimal spotPricePerKWh = dkkPerKWh;
         
         // Convert to Danish timezone for consistent storage
-        LocalDateTime priceDateTime = spotPrice.timeStart.atZoneSameInstant(
-            java.time.ZoneId.of("Europe/Copenhagen")).toLocalDateTime();
+        LocalDateTime priceDateTime = timeStart.atZoneSameInstant(COPENHAGEN).toLocalDateTime();
+        
+        // Interval length from the market time unit (60 or 15 minutes); entries without time_end are hourly
+        int resolutionMinutes = timeEnd != null
+                ? (int) Duration.between(timeStart, timeEnd).toMinutes()
+                : PriceIntervals.HOURLY;
         
-        // Extract hour from the converted priceDateTime (should match exactly)
-        int hour = priceDateTime.getHour();
+        // Position within the day counted in real elapsed time, so DST transition days stay unambiguous
+        int intervalIndex = PriceIntervals.indexOf(forDate, timeStart.toInstant(), resolutionMinutes);
+        
+        // Stored tariffs are those of the default grid company; other companies are applied on read.
+        // Its time-of-use grid tariff is stored as part of the transmission tariff.
+        TariffEngine.DayTariff tariff = tariffEngine.forDay(tariffEngine.getDefaultCompany(), forDate, resolutionMinutes);
+        long gridMicros = intervalIndex >= 0 && intervalIndex < tariff.getSlotCount() ? tariff.getGridMicros(intervalIndex) : 0;
         
         ElectricityPrice electricityPrice = new ElectricityPrice(
                 priceDateTime,
                 forDate, // Explicitly set which date these prices are for
-                hour,    // Hour of the day (0-23) from original timezone
+                intervalIndex,
+                resolutionMinutes,
                 spotPricePerKWh,
-                TRANSMISSION_TARIFF,
-                SYSTEM_TARIFF,
-                ELECTRICITY_TAX,
+                PriceMicros.toBigDecimal(tariff.getTransmissionMicros() + gridMicros),
+                PriceMicros.toBigDecimal(tariff.getSystemMicros()),
+                PriceMicros.toBigDecimal(tariff.getElectricityTaxMicros()),
                 region
         );
         
-        logger.info("Converting: original={}, converted={}, extractedHour={}, spotPrice={}, region={}, forDate={}", 
-                     spotPrice.timeStart, priceDateTime, hour, spotPricePerKWh, region, forDate);
+        // Per-row detail only on demand, e.g. POST /actuator/loggers/dk.electricity.pricecollector.ingest.rows (management port)
+        if (rowLogger.isTraceEnabled() && (rowTraceEvery <= 1 || intervalIndex % rowTraceEvery == 0)) {
+            rowLogger.trace("event=price_converted region={} date={} interval={} resolution_minutes={} " +
+                    "time_start={} local_time={} spot_price={}",
+                    region, forDate, intervalIndex, resolutionMinutes, timeStart, priceDateTime, spotPricePerKWh);
+        }
         
         return electricityPrice;
     }
     
+    /**
+     * Prices of one region and day as fetched, with the reason when there are none
+     */
+    public static class FetchResult {
+        public enum Outcome { OK, NOT_PUBLISHED, FAILED, CIRCUIT_OPEN }
+        
+        private final Outcome outcome;
+        private final List<ElectricityPrice> prices;
+        
+        public FetchResult(Outcome outcome, List<ElectricityPrice> prices) {
+            this.outcome = outcome;
+            this.prices = prices;
+        }
+        
+        /**
+         * Whether the prices cover every interval of the day, including 23- and 25-hour DST days
+         */
+        public boolean isCompleteDay(LocalDate date) {
+            return !prices.isEmpty()
+                && prices.size() == PriceIntervals.slotsPerDay(date, prices.get(0).getResolutionMinutes());
+        }
+        
+        // Getters
+        public Outcome getOutcome() { return outcome; }
+        public List<ElectricityPrice> getPrices() { return prices; }
+    }
+    
     /**
      * Inner class to represent the JSON response from elprisenligenu.dk API
      */
@@ -0,0 +1,65 @@
+package dk.electricity.pricecollector.service;
+
+import dk.electricity.pricecollector.repository.PricePartitionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the monthly partitions of electricity_prices in shape: creates partitions ahead of the
+ * data that will land in them and drops whole months once they fall out of the retention window.
+ */
+@Service
+public class PartitionMaintenanceService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PartitionMaintenanceService.class);
+
+    @Autowired
+    private PricePartitionRepository partitionRepository;
+
+    @Value("${price-collector.partitions.months-ahead:3}")
+    private int monthsAhead;
+
+    /**
+     * Make sure the current month and the configured number of months ahead have a partition
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void createUpcomingPartitions() {
+        YearMonth current = YearMonth.now();
+        List<YearMonth> months = new ArrayList<>();
+        for (int i = 0; i <= monthsAhead; i++) {
+            months.add(current.plusMonths(i));
+        }
+        partitionRepository.ensurePartitions(months);
+        logger.info("Partitions ensured from {} to {}", months.get(0), months.get(months.size() - 1));
+    }
+
+    /**
+     * Drop every partition whose month lies entirely before the given date.
+     * Returns the dropped months with the estimated number of rows each one held.
+     */
+    public Map<YearMonth, Long> dropPartitionsBefore(LocalDate cutoffDate) {
+        Map<YearMonth, Long> dropped = new LinkedHashMap<>();
+        for (YearMonth month : partitionRepository.findPartitionMonths()) {
+            if (!month.plusMonths(1).atDay(1).isAfter(cutoffDate)) {
+                dropped.put(month, partitionRepository.dropPartition(month));
+            }
+        }
+
+        if (!dropped.isEmpty()) {
+            logger.info("Dropped {} expired price partitions: {}", dropped.size(), dropped.keySet());
+        }
+        return dropped;
+    }
+}
@@ -0,0 +1,182 @@
+package dk.electricity.pricecollector.service;
+
+import dk.electricity.pricecollector.repository.PriceSeriesRepository.SeriesRowHandler;
+import dk.electricity.pricecollector.repository.PriceSeriesRepository.YearSummary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Binary archive of the price series with one file per region and year, e.g. DK1-2025.prices.
+ * A file is a 40 byte header followed by fixed-width 32 byte little-endian records
+ * (interval start epoch second, spot micro-DKK, total micro-DKK, resolution minutes, padding).
+ * The header carries the record count and price sums, the same fingerprint PostgreSQL computes
+ * per year, so a restart can tell which archived years are still current without reading rows.
+ * Files are read through a memory mapping and replaced atomically when written.
+ */
+@Component
+public class PriceArchive {
+
+    private static final Logger logger = LoggerFactory.getLogger(PriceArchive.class);
+
+    private static final int MAGIC = 0x45504131; // "EPA1"
+    private static final int HEADER_BYTES = 40;
+    private static final int RECORD_BYTES = 32;
+    private static final String SUFFIX = ".prices";
+    private static final Pattern FILE_NAME = Pattern.compile("([A-Za-z0-9]+)-(\\d{4})\\" + SUFFIX);
+
+    private final Path directory;
+    private final boolean enabled;
+
+    public PriceArchive(@Value("${price-collector.archive.directory:price-archive}") Path directory,
+                        @Value("${price-collector.archive.enabled:true}") boolean enabled) {
+        this.directory = directory;
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Archived region-years, ordered by region and year
+     */
+    public List<YearSummary> list() {
+        List<YearSummary> years = new ArrayList<>();
+        if (!enabled || !Files.isDirectory(directory)) {
+            return years;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for (Path file : files) {
+                Matcher name = FILE_NAME.matcher(file.getFileName().toString());
+                if (name.matches()) {
+                    years.add(readHeader(file, name.group(1), Integer.parseInt(name.group(2))));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to list price archive " + directory, e);
+        }
+        years.sort(Comparator.comparing(YearSummary::region).thenComparingInt(YearSummary::year));
+        return years;
+    }
+
+    /**
+     * Stream the records of an archived region-year in time order through a memory mapping
+     */
+    public void read(String region, int year, SeriesRowHandler handler) {
+        Path file = fileOf(region, year);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            int count = checkHeader(buffer, file);
+            for (int i = 0; i < count; i++) {
+                int offset = HEADER_BYTES + i * RECORD_BYTES;
+                handler.row(region, buffer.getLong(offset), buffer.getShort(offset + 24),
+                    buffer.getLong(offset + 8), buffer.getLong(offset + 16));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read price archive " + file, e);
+        }
+    }
+
+    /**
+     * Replace the archived year of a region with the given prices, which all fall in that year
+     */
+    public void write(String region, int year, PriceSeries prices) {
+        long spotSum = 0;
+        long totalSum = 0;
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + prices.size() * RECORD_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.position(HEADER_BYTES);
+        for (int i = 0; i < prices.size(); i++) {
+            buffer.putLong(prices.getEpochSecond(i));
+            buffer.putLong(prices.getSpotMicros(i));
+            buffer.putLong(prices.getTotalMicros(i));
+            buffer.putShort((short) prices.getResolutionMinutes(i));
+            buffer.position(buffer.position() + 6);
+            spotSum += prices.getSpotMicros(i);
+            totalSum += prices.getTotalMicros(i);
+        }
+        buffer.putInt(0, MAGIC)
+            .putInt(4, RECORD_BYTES)
+            .putLong(8, prices.size())
+            .putLong(16, spotSum)
+            .putLong(24, totalSum);
+        buffer.rewind();
+
+        Path file = fileOf(region, year);
+        try {
+            Files.createDirectories(directory);
+            Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write price archive " + file, e);
+        }
+        logger.debug("Archived {} prices for region {} in {}", prices.size(), region, year);
+    }
+
+    /**
+     * Remove an archived region-year, e.g. once retention has removed all its prices
+     */
+    public void delete(String region, int year) {
+        try {
+            Files.deleteIfExists(fileOf(region, year));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to delete price archive " + fileOf(region, year), e);
+        }
+    }
+
+    private YearSummary readHeader(Path file, String region, int year) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // keep reading until the header is complete or the file ends
+            }
+            header.flip();
+            if (header.remaining() < HEADER_BYTES || header.getInt(0) != MAGIC) {
+                // Unreadable file: reported as empty so the year is reloaded from the database
+                logger.warn("Ignoring invalid price archive file {}", file);
+                return new YearSummary(region, year, -1, 0, 0);
+            }
+            return new YearSummary(region, year, header.getLong(8), header.getLong(16), header.getLong(24));
+        }
+    }
+
+    private int checkHeader(ByteBuffer buffer, Path file) {
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(4) != RECORD_BYTES) {
+            throw new IllegalStateException("Not a price archive file: " + file);
+        }
+        long count = buffer.getLong(8);
+        if (HEADER_BYTES + count * RECORD_BYTES != buffer.capacity()) {
+            throw new IllegalStateException("Truncated price archive file: " + file);
+        }
+        return (int) count;
+    }
+
+    private Path fileOf(String region, int year) {
+        return directory.resolve(region + "-" + year + SUFFIX);
+    }
+}
@@ -0,0 +1,250 @@
+package dk.electricity.pricecollector.service;
+
+import dk.electricity.pricecollector.model.PriceMicros;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Spot prices of several regions aligned on common slots, with the spread between them, their
+ * pairwise correlation and how long they were coupled (all regions at the same price).
+ * Computed in one merge pass over the regions' {@link PriceSeries} columns: a slot starts at every
+ * interval start of any region and lasts until the next one, so hourly and quarter-hourly regions
+ * align without expanding either. Slots where a region has no price are skipped. Averages and
+ * correlations weight each slot by its length. Times are epoch seconds throughout.
+ */
+public final class PriceComparison {
+
+    private final List<String> regions;
+    private final int slotCount;
+    private final int skippedSlotCount;
+    private final double[] avgSpotPrices;
+    private final double avgSpread;
+    private final double maxSpread;
+    private final Long maxSpreadSlotStart;
+    private final double coupledHours;
+    private final double coupledShare;
+    private final Double[][] correlation;
+    private final long[] slotStarts;
+    private final int[] slotMinutes;
+    private final double[][] spotPrices;
+    private final double[] spreads;
+
+    private PriceComparison(List<String> regions, int slotCount, int skippedSlotCount, double[] avgSpotPrices,
+                            double avgSpread, double maxSpread, Long maxSpreadSlotStart, double coupledHours,
+                            double coupledShare, Double[][] correlation, long[] slotStarts, int[] slotMinutes,
+                            double[][] spotPrices, double[] spreads) {
+        this.regions = regions;
+        this.slotCount = slotCount;
+        this.skippedSlotCount = skippedSlotCount;
+        this.avgSpotPrices = avgSpotPrices;
+        this.avgSpread = avgSpread;
+        this.maxSpread = maxSpread;
+        this.maxSpreadSlotStart = maxSpreadSlotStart;
+        this.coupledHours = coupledHours;
+        this.coupledShare = coupledShare;
+        this.correlation = correlation;
+        this.slotStarts = slotStarts;
+        this.slotMinutes = slotMinutes;
+        this.spotPrices = spotPrices;
+        this.spreads = spreads;
+    }
+
+    /**
+     * Compare the given slices, one per region. Without slots only the aggregates are returned,
+     * which keeps comparisons over long ranges free of per-slot allocation.
+     */
+    public static PriceComparison of(List<PriceSeries> series, boolean includeSlots) {
+        int n = series.size();
+        int[] next = new int[n];        // position of each region's next interval start
+        int[] current = new int[n];     // position of the interval covering the slot, or -1
+        Arrays.fill(current, -1);
+
+        // Regions at the same resolution share their slot starts, so the largest slice is usually exact;
+        // a finer region that is not the largest or uncovered gaps make the columns grow
+        int capacity = 0;
+        if (includeSlots) {
+            for (PriceSeries regionSeries : series) {
+                capacity = Math.max(capacity, regionSeries.size());
+            }
+        }
+        long[] starts = new long[capacity];
+        int[] minutes = new int[capacity];
+        double[][] prices = new double[n][capacity];
+        double[] slotSpreads = new double[capacity];
+
+        // Correlation sums are taken relative to each region's first aligned price to avoid cancellation
+        long[] shift = new long[n];
+        double[] sums = new double[n];
+        double[][] products = new double[n][n];
+        long[] weightedPriceSums = new long[n];
+        long totalMinutes = 0;
+        long coupledMinutes = 0;
+        long weightedSpreadSum = 0;
+        long maxSpreadMicros = -1;
+        long maxSpreadEpochSecond = 0;
+        int slots = 0;
+        int skipped = 0;
+        long[] slotPrices = new long[n];
+
+        while (true) {
+            // The slot starts at the earliest pending interval start of any region
+            long start = Long.MAX_VALUE;
+            for (int r = 0; r < n; r++) {
+                if (next[r] < series.get(r).size()) {
+                    start = Math.min(start, series.get(r).getEpochSecond(next[r]));
+                }
+            }
+            if (start == Long.MAX_VALUE) {
+                break;
+            }
+
+            // Move every region onto the interval covering the slot and end the slot at the next boundary
+            long end = Long.MAX_VALUE;
+            boolean covered = true;
+            for (int r = 0; r < n; r++) {
+                PriceSeries regionSeries = series.get(r);
+                if (next[r] < regionSeries.size() && regionSeries.getEpochSecond(next[r]) == start) {
+                    current[r] = next[r]++;
+                }
+                if (next[r] < regionSeries.size()) {
+                    end = Math.min(end, regionSeries.getEpochSecond(next[r]));
+                }
+                long intervalEnd = current[r] < 0 ? start
+                    : regionSeries.getEpochSecond(current[r]) + regionSeries.getResolutionMinutes(current[r]) * 60L;
+                if (intervalEnd <= start) {
+                    covered = false;
+                } else {
+                    end = Math.min(end, intervalEnd);
+                }
+            }
+            if (!covered) {
+                skipped++;
+                continue;
+            }
+
+            int slotLength = (int) ((end - start) / 60);
+            long lowest = Long.MAX_VALUE;
+            long highest = Long.MIN_VALUE;
+            for (int r = 0; r < n; r++) {
+                long spot = series.get(r).getSpotMicros(current[r]);
+                slotPrices[r] = spot;
+                lowest = Math.min(lowest, spot);
+                highest = Math.max(highest, spot);
+                weightedPriceSums[r] += spot * slotLength;
+            }
+            if (slots == 0) {
+                System.arraycopy(slotPrices, 0, shift, 0, n);
+            }
+            for (int r = 0; r < n; r++) {
+                double centered = slotPrices[r] - shift[r];
+                sums[r] += centered * slotLength;
+                for (int q = r; q < n; q++) {
+                    products[r][q] += centered * (slotPrices[q] - shift[q]) * slotLength;
+                }
+            }
+
+            long spread = highest - lowest;
+            weightedSpreadSum += spread * slotLength;
+            if (spread > maxSpreadMicros) {
+                maxSpreadMicros = spread;
+                maxSpreadEpochSecond = start;
+            }
+            if (spread == 0) {
+                coupledMinutes += slotLength;
+            }
+            totalMinutes += slotLength;
+
+            if (includeSlots) {
+                if (slots == starts.length) {
+                    int grown = Math.max(16, slots + (slots >> 1));
+                    starts = Arrays.copyOf(starts, grown);
+                    minutes = Arrays.copyOf(minutes, grown);
+                    slotSpreads = Arrays.copyOf(slotSpreads, grown);
+                    for (int r = 0; r < n; r++) {
+                        prices[r] = Arrays.copyOf(prices[r], grown);
+                    }
+                }
+                starts[slots] = start;
+                minutes[slots] = slotLength;
+                for (int r = 0; r < n; r++) {
+                    prices[r][slots] = PriceMicros.toDouble(slotPrices[r]);
+                }
+                slotSpreads[slots] = PriceMicros.toDouble(spread);
+            }
+            slots++;
+        }
+
+        double[] averages = new double[n];
+        Double[][] correlation = new Double[n][n];
+        for (int r = 0; r < n; r++) {
+            averages[r] = slots == 0 ? 0 : PriceMicros.toDouble(PriceMicros.average(weightedPriceSums[r], (int) totalMinutes));
+            for (int q = r; q < n; q++) {
+                Double value = slots == 0 ? null : correlation(sums, products, totalMinutes, r, q);
+                correlation[r][q] = value;
+                correlation[q][r] = value;
+            }
+        }
+
+        List<String> regions = series.stream().map(PriceSeries::getRegion).toList();
+        return new PriceComparison(regions, slots, skipped, averages,
+            slots == 0 ? 0 : PriceMicros.toDouble(PriceMicros.average(weightedSpreadSum, (int) totalMinutes)),
+            slots == 0 ? 0 : PriceMicros.toDouble(maxSpreadMicros),
+            slots == 0 ? null : maxSpreadEpochSecond,
+            coupledMinutes / 60.0,
+            totalMinutes == 0 ? 0 : (double) coupledMinutes / totalMinutes,
+            correlation,
+            includeSlots ? trim(starts, slots) : null,
+            includeSlots ? trim(minutes, slots) : null,
+            includeSlots ? trim(prices, slots) : null,
+            includeSlots ? trim(slotSpreads, slots) : null);
+    }
+
+    // Time-weighted Pearson correlation, undefined (null) when a region's price never changed
+    private static Double correlation(double[] sums, double[][] products, long weight, int r, int q) {
+        double covariance = products[r][q] - sums[r] * sums[q] / weight;
+        double varianceR = products[r][r] - sums[r] * sums[r] / weight;
+        double varianceQ = products[q][q] - sums[q] * sums[q] / weight;
+        if (varianceR <= 0 || varianceQ <= 0) {
+            return null;
+        }
+        return Math.max(-1.0, Math.min(1.0, covariance / Math.sqrt(varianceR * varianceQ)));
+    }
+
+    // Columns are only copied when they were sized beyond the slot count
+    private static long[] trim(long[] column, int size) {
+        return column.length == size ? column : Arrays.copyOf(column, size);
+    }
+
+    private static int[] trim(int[] column, int size) {
+        return column.length == size ? column : Arrays.copyOf(column, size);
+    }
+
+    private static double[] trim(double[] column, int size) {
+        return column.length == size ? column : Arrays.copyOf(column, size);
+    }
+
+    private static double[][] trim(double[][] columns, int size) {
+        for (int r = 0; r < columns.length; r++) {
+            columns[r] = trim(columns[r], size);
+        }
+        return columns;
+    }
+
+    // Getters
+    public List<String> getRegions() { return regions; }
+    public int getSlotCount() { return slotCount; }
+    public int getSkippedSlotCount() { return skippedSlotCount; }
+    public double[] getAvgSpotPrices() { return avgSpotPrices; }
+    public double getAvgSpread() { return avgSpread; }
+    public double getMaxSpread() { return maxSpread; }
+    /** Start of the slot with the largest spread, in epoch seconds */
+    public Long getMaxSpreadSlotStart() { return maxSpreadSlotStart; }
+    public double getCoupledHours() { return coupledHours; }
+    public double getCoupledShare() { return coupledShare; }
+    public Double[][] getCorrelation() { return correlation; }
+    public long[] getSlotStarts() { return slotStarts; }
+    public int[] getSlotMinutes() { return slotMinutes; }
+    public double[][] getSpotPrices() { return spotPrices; }
+    public double[] getSpreads() { return spreads; }
+}
@@ -0,0 +1,272 @@
+package dk.electricity.pricecollector.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import dk.electricity.pricecollector.model.PriceIntervals;
+import dk.electricity.pricecollector.model.PriceMicros;
+import dk.electricity.pricecollector.repository.PriceExportRepository;
+import dk.electricity.pricecollector.repository.PriceExportRepository.ExportRow;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Streams prices for arbitrary region/date ranges as CSV, NDJSON or a compact columnar binary format.
+ * Rows go straight from the JDBC cursor into the response stream, so memory use is independent of
+ * the size of the range (the columnar format buffers one row group).
+ */
+@Service
+public class PriceExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PriceExportService.class);
+    private static final int BUFFER_BYTES = 64 * 1024;
+
+    @Autowired
+    private PriceExportRepository exportRepository;
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    public enum Format {
+        CSV("text/csv", "csv"),
+        NDJSON("application/x-ndjson", "ndjson"),
+        /** Row groups of primitive columns, see {@link ColumnarWriter} */
+        COLUMNAR("application/octet-stream", "prices");
+
+        private final String contentType;
+        private final String fileExtension;
+
+        Format(String contentType, String fileExtension) {
+            this.contentType = contentType;
+            this.fileExtension = fileExtension;
+        }
+
+        public String getContentType() { return contentType; }
+        public String getFileExtension() { return fileExtension; }
+
+        public static Format parse(String value) {
+            return valueOf(value.toUpperCase(Locale.ROOT));
+        }
+    }
+
+    /**
+     * Write all prices of the regions from fromDate to toDate (inclusive) to the stream and return the row count
+     */
+    public long export(Format format, List<String> regions, LocalDate fromDate, LocalDate toDate,
+                       OutputStream out) throws IOException {
+        long start = System.nanoTime();
+        RowWriter writer = switch (format) {
+            case CSV -> new CsvWriter(out);
+            case NDJSON -> new NdjsonWriter(jsonFactory, out);
+            case COLUMNAR -> new ColumnarWriter(out);
+        };
+
+        long[] rows = {0};
+        try {
+            exportRepository.stream(regions, fromDate, toDate, row -> {
+                try {
+                    writer.write(row);
+                    rows[0]++;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            // Typically the client disconnected; the cursor is closed when the exception unwinds the query
+            throw e.getCause();
+        }
+        writer.finish();
+
+        logger.info("Exported {} prices for {} from {} to {} as {} in {} ms",
+            rows[0], regions, fromDate, toDate, format, (System.nanoTime() - start) / 1_000_000);
+        return rows[0];
+    }
+
+    private interface RowWriter {
+        void write(ExportRow row) throws IOException;
+
+        void finish() throws IOException;
+    }
+
+    /**
+     * Append the row's start as an ISO offset date-time in Danish time, without an intermediate String
+     */
+    private static StringBuilder appendStart(StringBuilder target, ExportRow row) {
+        DateTimeFormatter.ISO_OFFSET_DATE_TIME.formatTo(
+            Instant.ofEpochSecond(row.getStartEpochSecond()).atZone(PriceIntervals.ZONE), target);
+        return target;
+    }
+
+    /**
+     * One line per price with a header line; prices as plain decimals in DKK per kWh
+     */
+    private static final class CsvWriter implements RowWriter {
+        private final Writer writer;
+        private final StringBuilder line = new StringBuilder(160);
+
+        private CsvWriter(OutputStream out) throws IOException {
+            this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_BYTES);
+            writer.write("region,price_date,interval_index,resolution_minutes,start,spot_price," +
+                "transmission_tariff,system_tariff,electricity_tax,total_price\n");
+        }
+
+        @Override
+        public void write(ExportRow row) throws IOException {
+            line.setLength(0);
+            line.append(row.getRegion()).append(',')
+                .append(row.getDate()).append(',')
+                .append(row.getIntervalIndex()).append(',')
+                .append(row.getResolutionMinutes()).append(',');
+            appendStart(line, row).append(',');
+            PriceMicros.appendTo(line, row.getSpotMicros()).append(',');
+            PriceMicros.appendTo(line, row.getTransmissionMicros()).append(',');
+            PriceMicros.appendTo(line, row.getSystemMicros()).append(',');
+            PriceMicros.appendTo(line, row.getElectricityTaxMicros()).append(',');
+            PriceMicros.appendTo(line, row.getTotalMicros()).append('\n');
+            writer.append(line);
+        }
+
+        @Override
+        public void finish() throws IOException {
+            writer.flush();
+        }
+    }
+
+    /**
+     * One JSON object per line, with the field names of the JSON price API
+     */
+    private static final class NdjsonWriter implements RowWriter {
+        private final JsonGenerator generator;
+        private final StringBuilder number = new StringBuilder(24);
+        private final StringBuilder start = new StringBuilder(32);
+        private char[] chars = new char[32];
+
+        private NdjsonWriter(JsonFactory jsonFactory, OutputStream out) throws IOException {
+            this.generator = jsonFactory.createGenerator(new BufferedOutputStream(out, BUFFER_BYTES));
+            generator.setPrettyPrinter(new MinimalPrettyPrinter("\n"));
+        }
+
+        @Override
+        public void write(ExportRow row) throws IOException {
+            generator.writeStartObject();
+            generator.writeStringField("region", row.getRegion());
+            generator.writeStringField("priceDate", row.getDate().toString());
+            generator.writeNumberField("intervalIndex", row.getIntervalIndex());
+            generator.writeNumberField("resolutionMinutes", row.getResolutionMinutes());
+            start.setLength(0);
+            appendStart(start, row);
+            if (chars.length < start.length()) {
+                chars = new char[start.length()];
+            }
+            start.getChars(0, start.length(), chars, 0);
+            generator.writeFieldName("start");
+            generator.writeString(chars, 0, start.length());
+            writePrice("spotPrice", row.getSpotMicros());
+            writePrice("transmissionTariff", row.getTransmissionMicros());
+            writePrice("systemTariff", row.getSystemMicros());
+            writePrice("electricityTax", row.getElectricityTaxMicros());
+            writePrice("totalPrice", row.getTotalMicros());
+            generator.writeEndObject();
+        }
+
+        private void writePrice(String field, long micros) throws IOException {
+            number.setLength(0);
+            generator.writeFieldName(field);
+            generator.writeNumber(PriceMicros.appendTo(number, micros).toString());
+        }
+
+        @Override
+        public void finish() throws IOException {
+            generator.writeRaw('\n');
+            generator.flush();
+        }
+    }
+
+    /**
+     * Compact columnar binary format, big-endian (java.io.DataOutput):
+     * <pre>
+     * magic "EPC1" (4 bytes), version (int) = 1
+     * row group*: row count (int, &gt; 0), region (modified UTF-8),
+     *             start epoch seconds (long[count]), resolution minutes (short[count]),
+     *             spot, transmission, system, electricity tax, total price in micro-DKK (long[count] each)
+     * end: row count 0
+     * </pre>
+     * A row group holds at most {@value #ROW_GROUP_SIZE} rows of a single region.
+     */
+    private static final class ColumnarWriter implements RowWriter {
+        private static final int MAGIC = 0x45504331; // "EPC1"
+        private static final int VERSION = 1;
+        private static final int ROW_GROUP_SIZE = 8192;
+
+        private final DataOutputStream out;
+        private final long[] startEpochSeconds = new long[ROW_GROUP_SIZE];
+        private final short[] resolutionMinutes = new short[ROW_GROUP_SIZE];
+        private final long[][] priceColumns = new long[5][ROW_GROUP_SIZE];
+        private String region;
+        private int size;
+
+        private ColumnarWriter(OutputStream out) throws IOException {
+            this.out = new DataOutputStream(new BufferedOutputStream(out, BUFFER_BYTES));
+            this.out.writeInt(MAGIC);
+            this.out.writeInt(VERSION);
+        }
+
+        @Override
+        public void write(ExportRow row) throws IOException {
+            if (size == ROW_GROUP_SIZE || (size > 0 && !row.getRegion().equals(region))) {
+                flushRowGroup();
+            }
+            region = row.getRegion();
+            startEpochSeconds[size] = row.getStartEpochSecond();
+            resolutionMinutes[size] = (short) row.getResolutionMinutes();
+            priceColumns[0][size] = row.getSpotMicros();
+            priceColumns[1][size] = row.getTransmissionMicros();
+            priceColumns[2][size] = row.getSystemMicros();
+            priceColumns[3][size] = row.getElectricityTaxMicros();
+            priceColumns[4][size] = row.getTotalMicros();
+            size++;
+        }
+
+        private void flushRowGroup() throws IOException {
+            out.writeInt(size);
+            out.writeUTF(region);
+            for (int i = 0; i < size; i++) {
+                out.writeLong(startEpochSeconds[i]);
+            }
+            for (int i = 0; i < size; i++) {
+                out.writeShort(resolutionMinutes[i]);
+            }
+            for (long[] column : priceColumns) {
+                for (int i = 0; i < size; i++) {
+                    out.writeLong(column[i]);
+                }
+            }
+            size = 0;
+        }
+
+        @Override
+        public void finish() throws IOException {
+            if (size > 0) {
+                flushRowGroup();
+            }
+            out.writeInt(0);
+            out.flush();
+        }
+    }
+}
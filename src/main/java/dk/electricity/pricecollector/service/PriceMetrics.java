@@ -0,0 +1,98 @@
+package dk.electricity.pricecollector.service;
+
+import dk.electricity.pricecollector.repository.ElectricityPriceBatchRepository.UpsertResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.function.Supplier;
+
+/**
+ * Micrometer meters for the ingestion and read paths that Spring Boot does not instrument itself.
+ * HTTP endpoints (http.server.requests) and ElectricityPriceRepository queries
+ * (spring.data.repository.invocations) are timed by Spring Boot; all meters are exposed on
+ * /actuator/prometheus.
+ */
+@Component
+public class PriceMetrics {
+
+    /** Status tag of a fetch that failed before an HTTP status was received */
+    public static final String STATUS_IO_ERROR = "IO_ERROR";
+
+    private final MeterRegistry registry;
+    private final Timer snapshotTimer;
+
+    public PriceMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.snapshotTimer = Timer.builder("pricecollector.snapshot.build")
+            .description("Loading days from the database and computing their summary and ranking")
+            .register(registry);
+    }
+
+    public Timer.Sample start() {
+        return Timer.start(registry);
+    }
+
+    /**
+     * Record an external fetch of a day's prices and return its duration in nanoseconds.
+     * The date is tagged relative to today (past, today, tomorrow, future) to keep the number
+     * of time series bounded.
+     */
+    public long fetchCompleted(Timer.Sample sample, String region, LocalDate date, String status) {
+        return sample.stop(Timer.builder("pricecollector.fetch")
+            .description("Fetching a day's prices from elprisenligenu.dk, including parsing")
+            .tag("region", region)
+            .tag("day", relativeDay(date))
+            .tag("status", status)
+            .register(registry));
+    }
+
+    /**
+     * Record parsing a day's response and return its duration in nanoseconds
+     */
+    public long parseCompleted(Timer.Sample sample, String region, String parser) {
+        return sample.stop(Timer.builder("pricecollector.parse")
+            .description("Parsing a day's API response into prices")
+            .tag("region", region)
+            .tag("parser", parser)
+            .register(registry));
+    }
+
+    public void rowsFetched(String region, int rows) {
+        registry.counter("pricecollector.rows.fetched", "region", region).increment(rows);
+    }
+
+    /**
+     * Record the outcome of upserting one region's prices
+     */
+    public void rowsStored(String region, UpsertResult result) {
+        storedRows(region, "inserted").increment(result.getInserted());
+        storedRows(region, "updated").increment(result.getUpdated());
+        storedRows(region, "unchanged").increment(result.getUnchanged());
+    }
+
+    private Counter storedRows(String region, String outcome) {
+        return Counter.builder("pricecollector.rows.stored")
+            .description("Rows written by ingestion upserts by region and outcome")
+            .tag("region", region)
+            .tag("outcome", outcome)
+            .register(registry);
+    }
+
+    public <T> T timeSnapshot(Supplier<T> loader) {
+        return snapshotTimer.record(loader);
+    }
+
+    private static String relativeDay(LocalDate date) {
+        LocalDate today = LocalDate.now();
+        if (date.isBefore(today)) {
+            return "past";
+        }
+        if (date.equals(today)) {
+            return "today";
+        }
+        return date.equals(today.plusDays(1)) ? "tomorrow" : "future";
+    }
+}
@@ -3,73 +3,80 @@ package dk.electricity.pricecollector.service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
+
+/**
+ * Daily maintenance and interval announcements. Fetching new prices is driven by {@link PublicationPoller}.
+ */
 @Service
 public class PriceScheduler {
     
     private static final Logger logger = LoggerFactory.getLogger(PriceScheduler.class);
     
     @Autowired
-    private ElprisenLigenuService elprisenLigenuService;
+    private PartitionMaintenanceService partitionMaintenanceService;
     
-    /**
-     * Fetch today's prices every day at 13:05 (after prices are typically published at 13:00)
-     */
-    @Scheduled(cron = "0 5 13 * * *")
-    public void fetchTodaysPricesScheduled() {
-        logger.info("Scheduled task: Fetching today's electricity prices...");
-        try {
-            elprisenLigenuService.fetchAndSaveTodaysPrices();
-            logger.info("Successfully fetched today's electricity prices");
-        } catch (Exception e) {
-            logger.error("Failed to fetch today's electricity prices", e);
-        }
-    }
+    @Autowired
+    private RetentionService retentionService;
+    
+    @Autowired
+    private ElectricityPriceService electricityPriceService;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
+    @Autowired
+    private RegionRegistry regionRegistry;
     
     /**
-     * Fetch tomorrow's prices every day at 13:10 (after prices are typically published at 13:00)
+     * Cleanup prices outside the retention window (price-collector.retention.window), daily at midnight by default
      */
-    @Scheduled(cron = "0 10 13 * * *")
-    public void fetchTomorrowsPricesScheduled() {
-        logger.info("Scheduled task: Fetching tomorrow's electricity prices...");
+    @Scheduled(cron = "${price-collector.retention.cron:0 0 0 * * *}")
+    public void cleanupOldPrices() {
+        logger.info("Scheduled task: Cleaning up old electricity prices...");
         try {
-            elprisenLigenuService.fetchAndSaveTomorrowsPrices();
-            logger.info("Successfully fetched tomorrow's electricity prices");
+            RetentionService.RetentionResult result = retentionService.applyRetention();
+            logger.info("Successfully cleaned up old electricity prices: {} rows removed in {} ms",
+                result.getRowsDeleted(), result.getElapsedMs());
         } catch (Exception e) {
-            logger.error("Failed to fetch tomorrow's electricity prices", e);
+            logger.error("Failed to cleanup old electricity prices", e);
         }
     }
     
     /**
-     * Cleanup old prices every day at midnight (keep only last 30 days)
+     * Create the partitions for the coming months every day at 00:30, well before any data arrives for them
      */
-    @Scheduled(cron = "0 0 0 * * *")
-    public void cleanupOldPrices() {
-        logger.info("Scheduled task: Cleaning up old electricity prices...");
+    @Scheduled(cron = "0 30 0 * * *")
+    public void createUpcomingPartitions() {
+        logger.info("Scheduled task: Creating upcoming price partitions...");
         try {
-            // This would need to be implemented in ElectricityPriceService if not already
-            // electricityPriceService.cleanupOldPrices(30);
-            logger.info("Successfully cleaned up old electricity prices");
+            partitionMaintenanceService.createUpcomingPartitions();
         } catch (Exception e) {
-            logger.error("Failed to cleanup old electricity prices", e);
+            logger.error("Failed to create upcoming price partitions", e);
         }
     }
     
     /**
-     * Fetch both today's and tomorrow's prices every day at 13:15 as a backup
-     * This ensures we have data even if individual scheduled tasks fail
+     * Announce the start of a new price interval to subscribed dashboards: every hour, and every
+     * quarter hour for regions whose prices today have quarter-hour resolution
      */
-    @Scheduled(cron = "0 15 13 * * *")
-    public void fetchAllPricesScheduled() {
-        logger.info("Scheduled task: Fetching all electricity prices (backup)...");
-        try {
-            elprisenLigenuService.fetchAndSaveTodaysPrices();
-            elprisenLigenuService.fetchAndSaveTomorrowsPrices();
-            logger.info("Successfully fetched all electricity prices (backup)");
-        } catch (Exception e) {
-            logger.error("Failed to fetch all electricity prices (backup)", e);
+    @Scheduled(cron = "0 0/15 * * * *")
+    public void announceIntervalStart() {
+        LocalDateTime now = LocalDateTime.now();
+        for (String region : regionRegistry.getCodes()) {
+            try {
+                int resolutionMinutes = electricityPriceService.getDaySnapshot(region, now.toLocalDate()).getResolutionMinutes();
+                if (now.getMinute() % resolutionMinutes == 0) {
+                    eventPublisher.publishEvent(new PriceUpdateEvent(
+                        PriceUpdateEvent.Type.INTERVAL_STARTED, region, now.toLocalDate()));
+                }
+            } catch (Exception e) {
+                logger.error("Failed to announce new price interval for region {}", region, e);
+            }
         }
     }
-}
\ No newline at end of file
+}
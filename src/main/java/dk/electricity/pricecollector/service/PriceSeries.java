@@ -0,0 +1,183 @@
+package dk.electricity.pricecollector.service;
+
+import dk.electricity.pricecollector.model.PriceMicros;
+
+import java.time.Instant;
+import java.util.Arrays;
+
+/**
+ * Immutable columnar view of one region's price history: interval start times in epoch seconds
+ * with parallel spot price, total price (micro-DKK) and resolution columns, sorted by time.
+ * A view covers the positions [from, to) of its backing arrays, so slicing a time range is two
+ * binary searches and one small object, without copying or allocating per price.
+ */
+public final class PriceSeries {
+
+    private final String region;
+    private final long[] epochSeconds;
+    private final long[] spotMicros;
+    private final long[] totalMicros;
+    private final short[] resolutionMinutes;
+    private final int from;
+    private final int to;
+
+    PriceSeries(String region, long[] epochSeconds, long[] spotMicros, long[] totalMicros,
+                short[] resolutionMinutes, int from, int to) {
+        this.region = region;
+        this.epochSeconds = epochSeconds;
+        this.spotMicros = spotMicros;
+        this.totalMicros = totalMicros;
+        this.resolutionMinutes = resolutionMinutes;
+        this.from = from;
+        this.to = to;
+    }
+
+    static PriceSeries empty(String region) {
+        return new PriceSeries(region, new long[0], new long[0], new long[0], new short[0], 0, 0);
+    }
+
+    /**
+     * Prices whose interval starts within [start, end)
+     */
+    public PriceSeries slice(Instant start, Instant end) {
+        return slice(start.getEpochSecond(), end.getEpochSecond());
+    }
+
+    /**
+     * Prices whose interval starts within [startEpochSecond, endEpochSecond)
+     */
+    public PriceSeries slice(long startEpochSecond, long endEpochSecond) {
+        int sliceFrom = lowerBound(startEpochSecond);
+        int sliceTo = Math.max(sliceFrom, lowerBound(endEpochSecond));
+        return new PriceSeries(region, epochSeconds, spotMicros, totalMicros, resolutionMinutes, sliceFrom, sliceTo);
+    }
+
+    // First backing position in [from, to) starting at or after the given time
+    int lowerBound(long epochSecond) {
+        int low = from;
+        int high = to;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (epochSeconds[mid] < epochSecond) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    public String getRegion() {
+        return region;
+    }
+
+    public int size() {
+        return to - from;
+    }
+
+    public boolean isEmpty() {
+        return from == to;
+    }
+
+    /**
+     * Start of the i-th interval in epoch seconds
+     */
+    public long getEpochSecond(int i) {
+        return epochSeconds[from + i];
+    }
+
+    /**
+     * Spot price of the i-th interval in micro-DKK
+     */
+    public long getSpotMicros(int i) {
+        return spotMicros[from + i];
+    }
+
+    /**
+     * Total price of the i-th interval in micro-DKK
+     */
+    public long getTotalMicros(int i) {
+        return totalMicros[from + i];
+    }
+
+    public int getResolutionMinutes(int i) {
+        return resolutionMinutes[from + i];
+    }
+
+    /**
+     * Count, time-weighted average, extremes and percentiles of the spot price in one pass plus
+     * one sort. Averages weight each interval by its length so hourly and quarter-hourly history
+     * mix correctly; percentiles are taken over intervals (nearest rank).
+     */
+    public Statistics statistics(double... percentiles) {
+        if (isEmpty()) {
+            return new Statistics(region, 0, 0, 0, 0, new double[percentiles.length], percentiles);
+        }
+
+        long weightedSum = 0;
+        long minutes = 0;
+        long lowest = Long.MAX_VALUE;
+        long highest = Long.MIN_VALUE;
+        for (int i = from; i < to; i++) {
+            long spot = spotMicros[i];
+            weightedSum += spot * resolutionMinutes[i];
+            minutes += resolutionMinutes[i];
+            lowest = Math.min(lowest, spot);
+            highest = Math.max(highest, spot);
+        }
+
+        double[] values = new double[percentiles.length];
+        if (percentiles.length > 0) {
+            long[] sorted = Arrays.copyOfRange(spotMicros, from, to);
+            Arrays.sort(sorted);
+            for (int p = 0; p < percentiles.length; p++) {
+                int rank = (int) Math.ceil(percentiles[p] / 100.0 * sorted.length);
+                values[p] = PriceMicros.toDouble(sorted[Math.min(sorted.length - 1, Math.max(0, rank - 1))]);
+            }
+        }
+
+        return new Statistics(region, size(), PriceMicros.toDouble(PriceMicros.average(weightedSum, (int) minutes)),
+            PriceMicros.toDouble(lowest), PriceMicros.toDouble(highest), values, percentiles);
+    }
+
+    // Package-private access for PriceSeriesStore, which appends into spare capacity
+    long[] epochSecondsArray() { return epochSeconds; }
+    long[] spotMicrosArray() { return spotMicros; }
+    long[] totalMicrosArray() { return totalMicros; }
+    short[] resolutionMinutesArray() { return resolutionMinutes; }
+    int from() { return from; }
+    int to() { return to; }
+
+    /**
+     * Spot price statistics over a slice, in DKK per kWh
+     */
+    public static class Statistics {
+        private final String region;
+        private final int priceCount;
+        private final double avgSpotPrice;
+        private final double minSpotPrice;
+        private final double maxSpotPrice;
+        private final double[] percentileValues;
+        private final double[] percentiles;
+
+        public Statistics(String region, int priceCount, double avgSpotPrice, double minSpotPrice,
+                          double maxSpotPrice, double[] percentileValues, double[] percentiles) {
+            this.region = region;
+            this.priceCount = priceCount;
+            this.avgSpotPrice = avgSpotPrice;
+            this.minSpotPrice = minSpotPrice;
+            this.maxSpotPrice = maxSpotPrice;
+            this.percentileValues = percentileValues;
+            this.percentiles = percentiles;
+        }
+
+        // Getters
+        public String getRegion() { return region; }
+        public int getPriceCount() { return priceCount; }
+        public double getAvgSpotPrice() { return avgSpotPrice; }
+        public double getMinSpotPrice() { return minSpotPrice; }
+        public double getMaxSpotPrice() { return maxSpotPrice; }
+        public double[] getPercentiles() { return percentiles; }
+        public double[] getPercentileValues() { return percentileValues; }
+    }
+}
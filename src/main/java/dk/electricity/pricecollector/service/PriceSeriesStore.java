@@ -0,0 +1,416 @@
+package dk.electricity.pricecollector.service;
+
+import dk.electricity.pricecollector.model.ElectricityPrice;
+import dk.electricity.pricecollector.model.PriceIntervals;
+import dk.electricity.pricecollector.model.PriceMicros;
+import dk.electricity.pricecollector.repository.ElectricityPriceBatchRepository;
+import dk.electricity.pricecollector.repository.PriceSeriesRepository;
+import dk.electricity.pricecollector.repository.PriceSeriesRepository.YearSummary;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Read-only columnar price history per region for analytics over long ranges.
+ * The history is loaded once at startup and kept current with the days ingestion has written. Changed years are written to the {@link PriceArchive}, so a restart maps the
+ * archive instead of scanning the table and only reloads the years the database disagrees on.
+ * Readers take the published {@link PriceSeries} without locking; writers are serialized and
+ * publish a new view. New days after the end of a series are written into spare capacity behind
+ * the published range, so the common daily append copies nothing; rewriting a day in the middle
+ * builds new arrays.
+ */
+@Component
+public class PriceSeriesStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(PriceSeriesStore.class);
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int MAX_SLOTS_PER_DAY = 100; // quarter hours on the autumn transition day
+
+    @Autowired
+    private PriceSeriesRepository seriesRepository;
+
+    @Autowired
+    private PriceArchive archive;
+
+    @Autowired
+    @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+    private TaskExecutor taskExecutor;
+
+    private final Map<String, PriceSeries> series = new ConcurrentHashMap<>();
+    private final Set<RegionYear> dirtyYears = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Load every region's history, from the archive when there is one and otherwise from the database.
+     * Runs before the other startup listeners so they can already use the series.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void load() {
+        List<YearSummary> archived = archive.list();
+        if (archived.isEmpty()) {
+            loadFromDatabase();
+            return;
+        }
+        loadFromArchive(archived);
+
+        // The archive may be behind the database, e.g. after ingestion by another instance or a restore
+        taskExecutor.execute(this::reconcileWithDatabase);
+    }
+
+    private synchronized void loadFromDatabase() {
+        long start = System.nanoTime();
+        Map<String, SeriesBuilder> builders = new HashMap<>();
+        seriesRepository.streamAll((region, epochSecond, resolutionMinutes, spotMicros, totalMicros) ->
+            builders.computeIfAbsent(region, SeriesBuilder::new)
+                .add(epochSecond, resolutionMinutes, spotMicros, totalMicros));
+        publish(builders);
+        logger.info("Loaded price series for {} regions ({} prices) from the database in {} ms",
+            builders.size(), countOf(builders), (System.nanoTime() - start) / 1_000_000);
+
+        if (archive.isEnabled()) {
+            series.forEach((region, regionSeries) -> markYearsDirty(regionSeries, 0, regionSeries.size()));
+            flushArchive();
+        }
+    }
+
+    private synchronized void loadFromArchive(List<YearSummary> archived) {
+        long start = System.nanoTime();
+        Map<String, SeriesBuilder> builders = new HashMap<>();
+        for (YearSummary year : archived) {
+            if (year.count() > 0) {
+                SeriesBuilder builder = builders.computeIfAbsent(year.region(), SeriesBuilder::new);
+                archive.read(year.region(), year.year(), (region, epochSecond, resolutionMinutes, spotMicros, totalMicros) ->
+                    builder.add(epochSecond, resolutionMinutes, spotMicros, totalMicros));
+            }
+        }
+        publish(builders);
+        logger.info("Loaded price series for {} regions ({} prices) from {} archived years in {} ms",
+            builders.size(), countOf(builders), archived.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Compare every archived region-year with the database and reload the ones that differ
+     */
+    void reconcileWithDatabase() {
+        try {
+            long start = System.nanoTime();
+            Map<RegionYear, YearSummary> stored = new HashMap<>();
+            for (YearSummary year : seriesRepository.summarizeYears()) {
+                stored.put(new RegionYear(year.region(), year.year()), year);
+            }
+            Map<RegionYear, YearSummary> archived = new HashMap<>();
+            for (YearSummary year : archive.list()) {
+                archived.put(new RegionYear(year.region(), year.year()), year);
+            }
+
+            Set<RegionYear> years = new HashSet<>(stored.keySet());
+            years.addAll(archived.keySet());
+            int reloaded = 0;
+            for (RegionYear year : years) {
+                YearSummary expected = stored.get(year);
+                YearSummary actual = archived.get(year);
+                if (!sameContent(expected, actual)) {
+                    reloadYear(year);
+                    reloaded++;
+                }
+            }
+            flushArchive();
+            logger.info("Price archive checked against the database in {} ms: {} of {} region-years reloaded",
+                (System.nanoTime() - start) / 1_000_000, reloaded, years.size());
+        } catch (RuntimeException e) {
+            logger.error("Failed to reconcile the price archive with the database", e);
+        }
+    }
+
+    private static boolean sameContent(YearSummary expected, YearSummary actual) {
+        return expected != null && actual != null
+            && expected.count() == actual.count()
+            && expected.spotMicrosSum() == actual.spotMicrosSum()
+            && expected.totalMicrosSum() == actual.totalMicrosSum();
+    }
+
+    private synchronized void reloadYear(RegionYear year) {
+        LocalDate first = LocalDate.of(year.year(), 1, 1);
+        LocalDate last = LocalDate.of(year.year(), 12, 31);
+        SeriesBuilder rows = new SeriesBuilder(year.region());
+        seriesRepository.streamDays(year.region(), first, last, (region, epochSecond, resolutionMinutes, spotMicros, totalMicros) ->
+            rows.add(epochSecond, resolutionMinutes, spotMicros, totalMicros));
+        series.put(year.region(), replaceRange(get(year.region()), epochSecondOf(first), epochSecondOf(last.plusDays(1)), rows));
+        dirtyYears.add(year);
+    }
+
+    /**
+     * Write the region-years changed since the last flush to the archive.
+     * Batched so a backfill of many days rewrites each year file once rather than once per day.
+     */
+    @Scheduled(fixedDelayString = "${price-collector.archive.flush-interval:PT30S}")
+    @PreDestroy
+    public void flushArchive() {
+        if (!archive.isEnabled() || dirtyYears.isEmpty()) {
+            return;
+        }
+        synchronized (archive) {
+            for (RegionYear year : List.copyOf(dirtyYears)) {
+                dirtyYears.remove(year);
+                PriceSeries prices = get(year.region())
+                    .slice(epochSecondOf(LocalDate.of(year.year(), 1, 1)), epochSecondOf(LocalDate.of(year.year() + 1, 1, 1)));
+                if (prices.isEmpty()) {
+                    archive.delete(year.region(), year.year());
+                } else {
+                    archive.write(year.region(), year.year(), prices);
+                }
+            }
+        }
+    }
+
+    /**
+     * Whether the series holds a price for every interval of the day. Right after a start from the
+     * archive this may still disagree with the database until reconciliation has finished.
+     */
+    public boolean hasCompleteDay(String region, LocalDate date) {
+        PriceSeries day = get(region).slice(epochSecondOf(date), epochSecondOf(date.plusDays(1)));
+        return !day.isEmpty() && day.size() == PriceIntervals.slotsPerDay(date, day.getResolutionMinutes(0));
+    }
+
+    /**
+     * The full history of a region, empty until loaded or for unknown regions
+     */
+    public PriceSeries get(String region) {
+        PriceSeries regionSeries = series.get(region);
+        return regionSeries != null ? regionSeries : PriceSeries.empty(region);
+    }
+
+    /**
+     * Prices of a region whose interval starts within [start, end) in Danish local time
+     */
+    public PriceSeries slice(String region, LocalDateTime start, LocalDateTime end) {
+        return get(region).slice(start.atZone(PriceIntervals.ZONE).toInstant(), end.atZone(PriceIntervals.ZONE).toInstant());
+    }
+
+    /**
+     * Re-read a day once the current transaction has committed, so the series never contains
+     * prices that were rolled back.
+     */
+    public void refreshDayAfterCommit(String region, LocalDate date) {
+        afterCommit(() -> refreshDay(region, date));
+    }
+
+    /**
+     * Replace a day with the prices just written for it once the current transaction has committed,
+     * without reading them back from the database
+     */
+    public void storeDayAfterCommit(String region, LocalDate date, List<ElectricityPrice> prices) {
+        afterCommit(() -> storeDay(region, date, prices));
+    }
+
+    /**
+     * Replace a region's day with the given prices when they cover every interval of it. A partial
+     * day is re-read from the database instead, since it may hold intervals the prices do not.
+     */
+    public synchronized void storeDay(String region, LocalDate date, List<ElectricityPrice> prices) {
+        int resolutionMinutes = prices.isEmpty() ? 0 : ElectricityPriceBatchRepository.resolutionOf(prices.get(0));
+        if (prices.isEmpty() || prices.size() != PriceIntervals.slotsPerDay(date, resolutionMinutes)) {
+            refreshDay(region, date);
+            return;
+        }
+        List<ElectricityPrice> ordered = prices.stream()
+            .sorted(Comparator.comparingInt(ElectricityPriceBatchRepository::intervalIndexOf))
+            .toList();
+        // Same interval starts as the database rows: the day start plus the interval index
+        long dayStart = epochSecondOf(date);
+        SeriesBuilder day = new SeriesBuilder(region, ordered.size());
+        for (int i = 0; i < ordered.size(); i++) {
+            ElectricityPrice price = ordered.get(i);
+            if (ElectricityPriceBatchRepository.intervalIndexOf(price) != i
+                    || ElectricityPriceBatchRepository.resolutionOf(price) != resolutionMinutes) {
+                refreshDay(region, date);
+                return;
+            }
+            day.add(dayStart + (long) i * resolutionMinutes * 60, resolutionMinutes,
+                PriceMicros.of(price.getSpotPrice()), PriceMicros.of(price.getTotalPrice()));
+        }
+
+        series.put(region, replaceRange(get(region), dayStart, epochSecondOf(date.plusDays(1)), day));
+        if (archive.isEnabled()) {
+            dirtyYears.add(new RegionYear(region, date.getYear()));
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * Replace a region's day with what is currently stored in the database
+     */
+    public synchronized void refreshDay(String region, LocalDate date) {
+        SeriesBuilder day = new SeriesBuilder(region, MAX_SLOTS_PER_DAY);
+        seriesRepository.streamDays(region, date, date, (rowRegion, epochSecond, resolutionMinutes, spotMicros, totalMicros) ->
+            day.add(epochSecond, resolutionMinutes, spotMicros, totalMicros));
+
+        series.put(region, replaceRange(get(region), epochSecondOf(date), epochSecondOf(date.plusDays(1)), day));
+        if (archive.isEnabled()) {
+            dirtyYears.add(new RegionYear(region, date.getYear()));
+        }
+    }
+
+    /**
+     * Drop everything starting before the cutoff, e.g. after retention removed it from the database.
+     * Only the view moves; the backing arrays are compacted by the next rewrite.
+     */
+    public synchronized void trimBefore(LocalDateTime cutoff) {
+        long cutoffEpochSecond = cutoff.atZone(PriceIntervals.ZONE).toEpochSecond();
+        series.replaceAll((region, regionSeries) -> {
+            int from = regionSeries.lowerBound(cutoffEpochSecond);
+            if (archive.isEnabled()) {
+                markYearsDirty(regionSeries, 0, from - regionSeries.from());
+            }
+            return from == regionSeries.from() ? regionSeries : new PriceSeries(region,
+                regionSeries.epochSecondsArray(), regionSeries.spotMicrosArray(), regionSeries.totalMicrosArray(),
+                regionSeries.resolutionMinutesArray(), from, regionSeries.to());
+        });
+    }
+
+    // Replace the prices in [start, end) with the given rows, which all lie within that range
+    private static PriceSeries replaceRange(PriceSeries current, long start, long end, SeriesBuilder rows) {
+        int replaceFrom = current.lowerBound(start);
+        int replaceTo = current.lowerBound(end);
+        int newTo = replaceFrom + rows.size;
+
+        // Nothing published at or after this day: write behind the visible range, old views never read there
+        if (replaceFrom == current.to() && newTo <= current.epochSecondsArray().length) {
+            System.arraycopy(rows.epochSeconds, 0, current.epochSecondsArray(), replaceFrom, rows.size);
+            System.arraycopy(rows.spotMicros, 0, current.spotMicrosArray(), replaceFrom, rows.size);
+            System.arraycopy(rows.totalMicros, 0, current.totalMicrosArray(), replaceFrom, rows.size);
+            System.arraycopy(rows.resolutionMinutes, 0, current.resolutionMinutesArray(), replaceFrom, rows.size);
+            return new PriceSeries(current.getRegion(), current.epochSecondsArray(), current.spotMicrosArray(),
+                current.totalMicrosArray(), current.resolutionMinutesArray(), current.from(), newTo);
+        }
+
+        int head = replaceFrom - current.from();
+        int tail = current.to() - replaceTo;
+        SeriesBuilder merged = new SeriesBuilder(current.getRegion(), grow(head + rows.size + tail));
+        merged.append(current.epochSecondsArray(), current.spotMicrosArray(), current.totalMicrosArray(),
+            current.resolutionMinutesArray(), current.from(), head);
+        merged.append(rows.epochSeconds, rows.spotMicros, rows.totalMicros, rows.resolutionMinutes, 0, rows.size);
+        merged.append(current.epochSecondsArray(), current.spotMicrosArray(), current.totalMicrosArray(),
+            current.resolutionMinutesArray(), replaceTo, tail);
+        return merged.build();
+    }
+
+    private void markYearsDirty(PriceSeries regionSeries, int from, int to) {
+        for (int i = from; i < to; i++) {
+            int year = Instant.ofEpochSecond(regionSeries.getEpochSecond(i)).atZone(PriceIntervals.ZONE).getYear();
+            dirtyYears.add(new RegionYear(regionSeries.getRegion(), year));
+            // Skip ahead to the first price of the next year
+            i = regionSeries.lowerBound(epochSecondOf(LocalDate.of(year + 1, 1, 1))) - regionSeries.from() - 1;
+        }
+    }
+
+    private void publish(Map<String, SeriesBuilder> builders) {
+        series.clear();
+        builders.values().forEach(builder -> series.put(builder.region, builder.build()));
+    }
+
+    private static long countOf(Map<String, SeriesBuilder> builders) {
+        return builders.values().stream().mapToLong(builder -> builder.size).sum();
+    }
+
+    private static long epochSecondOf(LocalDate date) {
+        return date.atStartOfDay(PriceIntervals.ZONE).toEpochSecond();
+    }
+
+    private static int grow(int size) {
+        return Math.max(INITIAL_CAPACITY, size + (size >> 2));
+    }
+
+    private record RegionYear(String region, int year) {
+    }
+
+    // Growable columns; build() publishes them without copying
+    private static final class SeriesBuilder {
+        private final String region;
+        private long[] epochSeconds;
+        private long[] spotMicros;
+        private long[] totalMicros;
+        private short[] resolutionMinutes;
+        private int size;
+
+        private SeriesBuilder(String region) {
+            this(region, INITIAL_CAPACITY);
+        }
+
+        private SeriesBuilder(String region, int capacity) {
+            this.region = region;
+            this.epochSeconds = new long[capacity];
+            this.spotMicros = new long[capacity];
+            this.totalMicros = new long[capacity];
+            this.resolutionMinutes = new short[capacity];
+        }
+
+        private void add(long epochSecond, int resolution, long spot, long total) {
+            ensureCapacity(size + 1);
+            epochSeconds[size] = epochSecond;
+            spotMicros[size] = spot;
+            totalMicros[size] = total;
+            resolutionMinutes[size] = (short) resolution;
+            size++;
+        }
+
+        private void append(long[] epochs, long[] spots, long[] totals, short[] resolutions, int offset, int length) {
+            ensureCapacity(size + length);
+            System.arraycopy(epochs, offset, epochSeconds, size, length);
+            System.arraycopy(spots, offset, spotMicros, size, length);
+            System.arraycopy(totals, offset, totalMicros, size, length);
+            System.arraycopy(resolutions, offset, resolutionMinutes, size, length);
+            size += length;
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity > epochSeconds.length) {
+                int newCapacity = Math.max(capacity, epochSeconds.length * 2);
+                epochSeconds = Arrays.copyOf(epochSeconds, newCapacity);
+                spotMicros = Arrays.copyOf(spotMicros, newCapacity);
+                totalMicros = Arrays.copyOf(totalMicros, newCapacity);
+                resolutionMinutes = Arrays.copyOf(resolutionMinutes, newCapacity);
+            }
+        }
+
+        private PriceSeries build() {
+            return new PriceSeries(region, epochSeconds, spotMicros, totalMicros, resolutionMinutes, 0, size);
+        }
+    }
+}
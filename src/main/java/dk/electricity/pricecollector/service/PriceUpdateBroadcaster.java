@@ -0,0 +1,101 @@
+package dk.electricity.pricecollector.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+
+/**
+ * Pushes {@link PriceUpdateEvent}s to open dashboards as server-sent events, so browsers only
+ * reload when prices actually change instead of polling.
+ * Open connections are parked in the servlet container's async support and do not hold a thread.
+ */
+@Component
+public class PriceUpdateBroadcaster {
+
+    private static final Logger logger = LoggerFactory.getLogger(PriceUpdateBroadcaster.class);
+
+    private final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+    private final long emitterTimeoutMs;
+
+    public PriceUpdateBroadcaster(@Value("${price-collector.push.emitter-timeout:30m}") Duration emitterTimeout) {
+        this.emitterTimeoutMs = emitterTimeout.toMillis();
+    }
+
+    /**
+     * Register a new subscriber. Browsers reconnect on their own once the emitter times out.
+     */
+    public SseEmitter subscribe() {
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMs);
+        emitter.onCompletion(() -> emitters.remove(emitter));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(e -> emitters.remove(emitter));
+        emitters.add(emitter);
+        logger.debug("Price update subscriber added, {} open", emitters.size());
+        return emitter;
+    }
+
+    /**
+     * Forward an update to every subscriber. Runs after the storing transaction committed, so a
+     * browser reacting to the event already sees the new prices.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPriceUpdate(PriceUpdateEvent event) {
+        // Dashboards only show today and tomorrow; backfills of history are not worth a reload
+        LocalDate today = LocalDate.now();
+        if (event.getDate().isBefore(today) || event.getDate().isAfter(today.plusDays(1))) {
+            return;
+        }
+
+        Map<String, Object> data = Map.of(
+            "region", event.getRegion(),
+            "date", event.getDate().toString(),
+            "timestamp", event.getTimestamp().toString());
+        int delivered = send(() -> SseEmitter.event()
+            .name(event.getType().getEventName())
+            .data(data, MediaType.APPLICATION_JSON));
+        logger.info("Pushed {} to {} subscribers", event, delivered);
+    }
+
+    /**
+     * Comment line that keeps idle connections from being closed by proxies
+     */
+    @Scheduled(fixedDelayString = "${price-collector.push.heartbeat:PT45S}")
+    public void heartbeat() {
+        if (!emitters.isEmpty()) {
+            send(() -> SseEmitter.event().comment("heartbeat"));
+        }
+    }
+
+    public int getSubscriberCount() {
+        return emitters.size();
+    }
+
+    // Event builders are single use, so every emitter gets a freshly built event
+    private int send(Supplier<SseEmitter.SseEventBuilder> event) {
+        int delivered = 0;
+        for (SseEmitter emitter : emitters) {
+            try {
+                emitter.send(event.get());
+                delivered++;
+            } catch (IOException | IllegalStateException e) {
+                // Client went away; drop it rather than failing the broadcast
+                emitters.remove(emitter);
+                emitter.completeWithError(e);
+            }
+        }
+        return delivered;
+    }
+}
@@ -0,0 +1,54 @@
+package dk.electricity.pricecollector.service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Published when what a dashboard shows for a region changes: a new price interval has started,
+ * or ingestion stored new or changed prices for a day.
+ */
+public class PriceUpdateEvent {
+
+    public enum Type {
+        /** A new hour (or quarter hour) began, so the current price moved on */
+        INTERVAL_STARTED("price-changed"),
+        /** Ingestion inserted or updated prices for the day */
+        PRICES_STORED("prices-updated");
+
+        private final String eventName;
+
+        Type(String eventName) {
+            this.eventName = eventName;
+        }
+
+        /**
+         * Name of the server-sent event delivered to browsers
+         */
+        public String getEventName() {
+            return eventName;
+        }
+    }
+
+    private final Type type;
+    private final String region;
+    private final LocalDate date;
+    private final LocalDateTime timestamp;
+
+    public PriceUpdateEvent(Type type, String region, LocalDate date) {
+        this.type = type;
+        this.region = region;
+        this.date = date;
+        this.timestamp = LocalDateTime.now();
+    }
+
+    // Getters
+    public Type getType() { return type; }
+    public String getRegion() { return region; }
+    public LocalDate getDate() { return date; }
+    public LocalDateTime getTimestamp() { return timestamp; }
+
+    @Override
+    public String toString() {
+        return "PriceUpdateEvent{type=" + type + ", region=" + region + ", date=" + date + '}';
+    }
+}
@@ -0,0 +1,180 @@
+package dk.electricity.pricecollector.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Polls elprisenligenu.dk for the day-ahead prices from shortly before their usual publication
+ * until every region has a complete day stored. Attempts are spaced with exponential backoff and
+ * jitter, so a late publication is picked up within max-backoff without hammering the upstream;
+ * days that are already complete are never requested again.
+ */
+@Service
+public class PublicationPoller {
+
+    private static final Logger logger = LoggerFactory.getLogger(PublicationPoller.class);
+
+    @Autowired
+    private ElprisenLigenuService elprisenLigenuService;
+
+    @Autowired
+    private RegionRegistry regionRegistry;
+
+    @Autowired
+    private PriceSeriesStore priceSeriesStore;
+
+    @Autowired
+    private TaskScheduler taskScheduler;
+
+    @Value("${price-collector.poller.initial-backoff:PT30S}")
+    private Duration initialBackoff;
+
+    @Value("${price-collector.poller.max-backoff:PT5M}")
+    private Duration maxBackoff;
+
+    @Value("${price-collector.poller.multiplier:2.0}")
+    private double multiplier;
+
+    // Each delay is varied by up to this fraction in either direction
+    @Value("${price-collector.poller.jitter:0.2}")
+    private double jitter;
+
+    // Give up on a poll cycle after this long; the next cycle starts the following day
+    @Value("${price-collector.poller.max-duration:PT11H}")
+    private Duration maxDuration;
+
+    private Poll current;
+
+    /**
+     * Start polling for today's (if incomplete) and tomorrow's prices, by default daily at 12:45
+     */
+    @Scheduled(cron = "${price-collector.poller.start-cron:0 45 12 * * *}")
+    public void startPolling() {
+        LocalDate today = LocalDate.now();
+        startPolling(List.of(today, today.plusDays(1)));
+    }
+
+    /**
+     * Start a poll cycle for the given dates unless one is already running
+     */
+    public synchronized boolean startPolling(List<LocalDate> dates) {
+        if (current != null && !current.finished) {
+            logger.info("Price publication poll for {} still running, not starting another", current.dates);
+            return false;
+        }
+        Poll poll = new Poll(dates, Instant.now().plus(maxDuration));
+        current = poll;
+        logger.info("Polling for prices of {} in regions {}", dates, regionRegistry.getCodes());
+        try {
+            taskScheduler.schedule(() -> attempt(poll), Instant.now());
+        } catch (RuntimeException e) {
+            logger.error("Could not start polling for prices of {}", dates, e);
+            poll.finished = true;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * One attempt of a poll cycle. Any failure ends the cycle, so the next one is not blocked by it.
+     */
+    private void attempt(Poll poll) {
+        try {
+            poll.attempts++;
+            List<String> missing = new ArrayList<>();
+            for (LocalDate date : poll.dates) {
+                for (String region : regionRegistry.getCodes()) {
+                    if (!isComplete(region, date) && !fetchAndSave(region, date)) {
+                        missing.add(region + " " + date);
+                    }
+                }
+            }
+
+            if (missing.isEmpty()) {
+                logger.info("Prices for {} complete after {} attempt(s)", poll.dates, poll.attempts);
+                poll.finished = true;
+                return;
+            }
+
+            Duration delay = nextDelay(poll.attempts);
+            Instant next = Instant.now().plus(delay);
+            if (next.isAfter(poll.deadline)) {
+                logger.warn("Giving up polling for prices after {} attempt(s), still missing: {}", poll.attempts, missing);
+                poll.finished = true;
+                return;
+            }
+            logger.info("Prices still missing for {} after attempt {}, retrying in {} s",
+                missing, poll.attempts, delay.toSeconds());
+            taskScheduler.schedule(() -> attempt(poll), next);
+        } catch (RuntimeException e) {
+            // E.g. the scheduler rejecting the retry during shutdown
+            logger.error("Polling for prices of {} failed on attempt {}, stopping", poll.dates, poll.attempts, e);
+            poll.finished = true;
+        }
+    }
+
+    /**
+     * Whether a complete day is stored; a failing check counts as incomplete and is retried with the fetch
+     */
+    private boolean isComplete(String region, LocalDate date) {
+        try {
+            return priceSeriesStore.hasCompleteDay(region, date);
+        } catch (Exception e) {
+            logger.error("Failed to check stored prices for region {} on {}", region, date, e);
+            return false;
+        }
+    }
+
+    /**
+     * Fetch and store one region-day; true when a complete day was stored
+     */
+    private boolean fetchAndSave(String region, LocalDate date) {
+        try {
+            ElprisenLigenuService.FetchResult result = elprisenLigenuService.fetchDay(date, region);
+            if (result.getPrices().isEmpty()) {
+                logger.debug("No prices for region {} on {}: {}", region, date, result.getOutcome());
+                return false;
+            }
+            // A partial day is stored as well, the remaining intervals follow on a later attempt
+            elprisenLigenuService.savePrices(region, date, result.getPrices());
+            return result.isCompleteDay(date);
+        } catch (Exception e) {
+            logger.error("Failed to store prices for region {} on {}", region, date, e);
+            return false;
+        }
+    }
+
+    /**
+     * initial-backoff * multiplier^(attempt - 1), capped at max-backoff, varied by +/- jitter
+     */
+    private Duration nextDelay(int attempt) {
+        double backoff = initialBackoff.toMillis() * Math.pow(multiplier, attempt - 1);
+        double capped = Math.min(backoff, maxBackoff.toMillis());
+        double factor = 1.0 + jitter * (2 * ThreadLocalRandom.current().nextDouble() - 1);
+        return Duration.ofMillis(Math.max(1, (long) (capped * factor)));
+    }
+
+    private static final class Poll {
+        private final List<LocalDate> dates;
+        private final Instant deadline;
+        private int attempts;
+        private volatile boolean finished;
+
+        private Poll(List<LocalDate> dates, Instant deadline) {
+            this.dates = dates;
+            this.deadline = deadline;
+        }
+    }
+}
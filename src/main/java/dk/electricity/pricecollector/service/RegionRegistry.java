@@ -0,0 +1,77 @@
+package dk.electricity.pricecollector.service;
+
+import dk.electricity.pricecollector.config.RegionProperties;
+import dk.electricity.pricecollector.repository.RegionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * The configured bidding zones, in configuration order. Ingestion fetches every zone, caches are
+ * sized per zone and the dashboard serves a page per zone; every zone is registered in the regions
+ * table at startup, so its prices can be stored under a compact id.
+ */
+@Component
+public class RegionRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(RegionRegistry.class);
+    private static final Pattern CODE = Pattern.compile("[A-Z0-9]{1,10}");
+
+    private final Map<String, RegionProperties.Zone> zones = new LinkedHashMap<>();
+    private final String defaultRegion;
+
+    public RegionRegistry(RegionProperties properties, RegionRepository regionRepository) {
+        for (RegionProperties.Zone zone : properties.getZones()) {
+            if (zone.getCode() == null || !CODE.matcher(zone.getCode()).matches()) {
+                throw new IllegalStateException("Invalid region code: " + zone.getCode());
+            }
+            if (zones.putIfAbsent(zone.getCode(), zone) != null) {
+                throw new IllegalStateException("Region configured twice: " + zone.getCode());
+            }
+        }
+        if (!zones.containsKey(properties.getDefaultRegion())) {
+            throw new IllegalStateException("Default region " + properties.getDefaultRegion() + " is not configured");
+        }
+        this.defaultRegion = properties.getDefaultRegion();
+        zones.keySet().forEach(regionRepository::register);
+        logger.info("Regions: {} (default {})", zones.keySet(), defaultRegion);
+    }
+
+    public List<String> getCodes() {
+        return List.copyOf(zones.keySet());
+    }
+
+    public Collection<RegionProperties.Zone> getZones() {
+        return zones.values();
+    }
+
+    public String getDefaultRegion() {
+        return defaultRegion;
+    }
+
+    public boolean isConfigured(String region) {
+        return zones.containsKey(region);
+    }
+
+    /**
+     * Display name of a zone, falling back to its code
+     */
+    public String getName(String region) {
+        RegionProperties.Zone zone = zones.get(region);
+        return zone != null && zone.getName() != null ? zone.getName() : region;
+    }
+
+    /**
+     * API base URL a zone is fetched from, or the given default when it names none
+     */
+    public String getBaseUrl(String region, String defaultBaseUrl) {
+        RegionProperties.Zone zone = zones.get(region);
+        return zone != null && zone.getBaseUrl() != null ? zone.getBaseUrl() : defaultBaseUrl;
+    }
+}
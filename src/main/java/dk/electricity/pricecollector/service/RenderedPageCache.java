@@ -0,0 +1,148 @@
+package dk.electricity.pricecollector.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Rendered dashboard pages, stored as UTF-8 and pre-compressed gzip bytes. A page only depends on
+ * the data versions of the days it shows and on the current price interval, so every viewer within
+ * an interval gets the same bytes and the template is rendered once per interval and data change.
+ * Pages of a region are dropped when a {@link PriceUpdateEvent} announces new prices or a new interval.
+ */
+@Component
+public class RenderedPageCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(RenderedPageCache.class);
+
+    private final Map<PageKey, RenderedPage> pages = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder renders = new LongAdder();
+
+    private final boolean enabled;
+
+    /**
+     * Follows spring.thymeleaf.cache, so edited templates show up on reload during development
+     */
+    public RenderedPageCache(@Value("${spring.thymeleaf.cache:true}") boolean enabled, MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        FunctionCounter.builder("pricecollector.dashboard.pages", hits, LongAdder::sum)
+            .description("Dashboard page requests by whether the page was served from the cache or rendered")
+            .tag("outcome", "hit")
+            .register(meterRegistry);
+        FunctionCounter.builder("pricecollector.dashboard.pages", renders, LongAdder::sum)
+            .description("Dashboard page requests by whether the page was served from the cache or rendered")
+            .tag("outcome", "render")
+            .register(meterRegistry);
+        Gauge.builder("pricecollector.dashboard.pages.cached", pages, Map::size)
+            .description("Rendered dashboard pages currently cached")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Get the rendered page for a key, rendering and compressing it once on a miss
+     */
+    public RenderedPage get(PageKey key, Supplier<String> renderer) {
+        if (!enabled) {
+            renders.increment();
+            return RenderedPage.of(key, renderer.get());
+        }
+        RenderedPage page = pages.get(key);
+        if (page != null) {
+            hits.increment();
+            return page;
+        }
+        // Concurrent first requests for the same page wait for one render instead of rendering in parallel
+        return pages.computeIfAbsent(key, k -> {
+            renders.increment();
+            return RenderedPage.of(k, renderer.get());
+        });
+    }
+
+    /**
+     * Drop the rendered pages of a region once the event's transaction (if any) has committed
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPriceUpdate(PriceUpdateEvent event) {
+        invalidate(event.getRegion());
+    }
+
+    /**
+     * Drop the rendered pages of a region
+     */
+    public void invalidate(String region) {
+        if (pages.keySet().removeIf(key -> key.region().equals(region))) {
+            logger.debug("Invalidated rendered pages for region {}", region);
+        }
+    }
+
+    /**
+     * Identifies one rendering of a page: the data versions of the days it shows and the start of
+     * the price interval it highlights as current
+     */
+    public record PageKey(String page, String region, String dataVersion, LocalDateTime interval) {
+    }
+
+    /**
+     * A rendered page in every encoding it is served in
+     */
+    public static final class RenderedPage {
+        private final byte[] identity;
+        private final byte[] gzip;
+        private final String eTag;
+
+        private RenderedPage(byte[] identity, byte[] gzip, String eTag) {
+            this.identity = identity;
+            this.gzip = gzip;
+            this.eTag = eTag;
+        }
+
+        static RenderedPage of(PageKey key, String html) {
+            byte[] identity = html.getBytes(StandardCharsets.UTF_8);
+            String eTag = key.page() + "-" + key.region() + "-" + key.dataVersion() + "-" + key.interval();
+            return new RenderedPage(identity, gzip(identity), eTag);
+        }
+
+        private static byte[] gzip(byte[] data) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 4);
+            // Compressed once per rendering, so the slowest, smallest setting is affordable
+            try (GZIPOutputStream gzip = new GZIPOutputStream(out) {
+                {
+                    def.setLevel(Deflater.BEST_COMPRESSION);
+                }
+            }) {
+                gzip.write(data);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return out.toByteArray();
+        }
+
+        // Getters
+        public byte[] getIdentity() { return identity; }
+        public byte[] getGzip() { return gzip; }
+
+        /**
+         * Entity tag of the page without quotes; encodings get distinct tags by suffix
+         */
+        public String getETag() { return eTag; }
+    }
+}
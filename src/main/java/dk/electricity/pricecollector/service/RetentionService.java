@@ -0,0 +1,136 @@
+package dk.electricity.pricecollector.service;
+
+import dk.electricity.pricecollector.config.ReplicaRoutingDataSource;
+import dk.electricity.pricecollector.repository.ElectricityPriceBatchRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Removes prices that are older than the retention window.
+ * Months entirely outside the window are dropped as whole partitions; the remaining expired rows
+ * in the boundary month are deleted with set-based DELETEs in bounded chunks, each committed on
+ * its own so no single transaction holds locks or WAL for the whole cleanup.
+ */
+@Service
+public class RetentionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RetentionService.class);
+
+    @Autowired
+    private ElectricityPriceBatchRepository batchRepository;
+
+    @Autowired
+    private PartitionMaintenanceService partitionMaintenanceService;
+
+    @Autowired
+    private DayPriceCache dayPriceCache;
+
+    @Autowired
+    private PriceSeriesStore priceSeriesStore;
+
+    // Only present when read replicas are enabled
+    @Autowired
+    private ObjectProvider<ReplicaRoutingDataSource> replicaRouting;
+
+    @Value("${price-collector.retention.window:0d}")
+    private Duration window;
+
+    @Value("${price-collector.retention.chunk-size:5000}")
+    private int chunkSize;
+
+    /**
+     * Apply the configured retention window; a zero window keeps everything
+     */
+    public RetentionResult applyRetention() {
+        LocalDateTime cutoff = currentCutoff();
+        if (cutoff == null) {
+            logger.debug("Price retention disabled");
+            return new RetentionResult(null, List.of(), 0, 0, 0);
+        }
+        return purgeOlderThan(cutoff);
+    }
+
+    /**
+     * Prices starting before this are removed by the next retention run; null when retention is disabled
+     */
+    public LocalDateTime currentCutoff() {
+        if (window.isZero() || window.isNegative()) {
+            return null;
+        }
+        return LocalDateTime.now().minus(window);
+    }
+
+    /**
+     * Delete all prices starting before the cutoff
+     */
+    public RetentionResult purgeOlderThan(LocalDateTime cutoff) {
+        long start = System.nanoTime();
+        logger.info("Cleaning up prices older than: {}", cutoff);
+
+        Map<YearMonth, Long> dropped = partitionMaintenanceService.dropPartitionsBefore(cutoff.toLocalDate());
+        List<YearMonth> droppedPartitions = List.copyOf(dropped.keySet());
+        long rowsDeleted = dropped.values().stream().mapToLong(Long::longValue).sum();
+
+        // Expired rows left in the partitions that are still partly inside the window
+        long chunkedRowsDeleted = 0;
+        int chunks = 0;
+        int deleted;
+        do {
+            deleted = batchRepository.deleteExpiredChunk(cutoff, chunkSize);
+            chunkedRowsDeleted += deleted;
+            chunks++;
+        } while (deleted == chunkSize);
+
+        rowsDeleted += chunkedRowsDeleted;
+        if (rowsDeleted > 0 || !droppedPartitions.isEmpty()) {
+            // WAL position first, so days reloaded after the invalidation are not read from a lagging replica
+            replicaRouting.ifAvailable(ReplicaRoutingDataSource::primaryWrittenAfterCommit);
+            dayPriceCache.invalidateAll();
+            priceSeriesStore.trimBefore(cutoff);
+        }
+
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        RetentionResult result = new RetentionResult(cutoff, droppedPartitions, rowsDeleted, chunks, elapsedMs);
+        logger.info("Retention finished: {} rows removed (~{} by dropping {} partitions, {} in {} chunks), {} ms",
+            rowsDeleted, rowsDeleted - chunkedRowsDeleted, droppedPartitions.size(), chunkedRowsDeleted, chunks, elapsedMs);
+        return result;
+    }
+
+    /**
+     * Outcome of a retention run
+     */
+    public static class RetentionResult {
+        private final LocalDateTime cutoff;
+        private final List<YearMonth> droppedPartitions;
+        private final long rowsDeleted;
+        private final int chunks;
+        private final long elapsedMs;
+
+        public RetentionResult(LocalDateTime cutoff, List<YearMonth> droppedPartitions, long rowsDeleted,
+                               int chunks, long elapsedMs) {
+            this.cutoff = cutoff;
+            this.droppedPartitions = droppedPartitions;
+            this.rowsDeleted = rowsDeleted;
+            this.chunks = chunks;
+            this.elapsedMs = elapsedMs;
+        }
+
+        // Getters
+        public LocalDateTime getCutoff() { return cutoff; }
+        public List<YearMonth> getDroppedPartitions() { return droppedPartitions; }
+        /** Rows deleted in chunks plus the estimated rows of the dropped partitions */
+        public long getRowsDeleted() { return rowsDeleted; }
+        public int getChunks() { return chunks; }
+        public long getElapsedMs() { return elapsedMs; }
+    }
+}
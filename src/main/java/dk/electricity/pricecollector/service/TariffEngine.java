@@ -0,0 +1,320 @@
+package dk.electricity.pricecollector.service;
+
+import dk.electricity.pricecollector.config.TariffProperties;
+import dk.electricity.pricecollector.model.ElectricityPrice;
+import dk.electricity.pricecollector.model.PriceIntervals;
+import dk.electricity.pricecollector.model.PriceMicros;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Applies grid company tariffs to spot prices on the fly, so tariff changes never rewrite stored history
+ * and one spot series serves any number of customer profiles.
+ * Each tariff version is compiled once into a month x hour table; a day is then compiled into one
+ * tariff per interval (24/96 slots, 23/25 and 92/100 on DST days), and applying it to a day of spot
+ * prices is an array add.
+ */
+@Service
+public class TariffEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(TariffEngine.class);
+
+    // Pre-tariff-engine constants, used when no tariffs are configured
+    private static final BigDecimal DEFAULT_TRANSMISSION_TARIFF = new BigDecimal("0.058");
+    private static final BigDecimal DEFAULT_SYSTEM_TARIFF = new BigDecimal("0.0125");
+    private static final BigDecimal DEFAULT_ELECTRICITY_TAX = new BigDecimal("0.090");
+    private static final int MAX_CACHED_DAYS = 1024;
+
+    private final String defaultCompany;
+    private final Map<String, List<CompiledVersion>> companies = new LinkedHashMap<>();
+    private final Map<String, TariffProperties.Company> definitions;
+    private final Map<DayKey, DayTariff> compiledDays = new ConcurrentHashMap<>();
+
+    public TariffEngine(TariffProperties properties) {
+        this.definitions = properties.getCompanies().isEmpty()
+            ? Map.of(properties.getDefaultCompany(), legacyDefault())
+            : properties.getCompanies();
+        this.defaultCompany = properties.getDefaultCompany();
+
+        definitions.forEach((company, definition) -> {
+            if (definition.getVersions().isEmpty()) {
+                throw new IllegalStateException("Tariff company " + company + " has no versions");
+            }
+            List<CompiledVersion> versions = new ArrayList<>();
+            for (TariffProperties.Version version : definition.getVersions()) {
+                if (version.getValidFrom() == null) {
+                    throw new IllegalStateException("Tariff version of " + company + " without valid-from");
+                }
+                versions.add(new CompiledVersion(version));
+            }
+            versions.sort(Comparator.comparing(CompiledVersion::validFrom));
+            companies.put(company, versions);
+        });
+        if (!companies.containsKey(defaultCompany)) {
+            throw new IllegalStateException("Default tariff company " + defaultCompany + " is not configured");
+        }
+        logger.info("Tariff schedules loaded for grid companies {} (default {})", companies.keySet(), defaultCompany);
+    }
+
+    private static TariffProperties.Company legacyDefault() {
+        TariffProperties.Version version = new TariffProperties.Version();
+        version.setValidFrom(LocalDate.MIN);
+        version.setTransmissionTariff(DEFAULT_TRANSMISSION_TARIFF);
+        version.setSystemTariff(DEFAULT_SYSTEM_TARIFF);
+        version.setElectricityTax(DEFAULT_ELECTRICITY_TAX);
+        TariffProperties.Company company = new TariffProperties.Company();
+        company.setName("Standard tariffs");
+        company.setVersions(List.of(version));
+        return company;
+    }
+
+    public String getDefaultCompany() {
+        return defaultCompany;
+    }
+
+    public Set<String> getCompanies() {
+        return companies.keySet();
+    }
+
+    public boolean hasCompany(String company) {
+        return companies.containsKey(company);
+    }
+
+    /**
+     * Configured schedules, e.g. to show which tariff versions exist
+     */
+    public Map<String, TariffProperties.Company> getDefinitions() {
+        return definitions;
+    }
+
+    /**
+     * Region a company's customers are in, or null when not configured
+     */
+    public String getRegion(String company) {
+        TariffProperties.Company definition = definitions.get(company);
+        return definition != null ? definition.getRegion() : null;
+    }
+
+    /**
+     * Tariffs of every interval of a day for a grid company
+     */
+    public DayTariff forDay(String company, LocalDate date, int resolutionMinutes) {
+        List<CompiledVersion> versions = companies.get(company);
+        if (versions == null) {
+            throw new IllegalArgumentException("Unknown grid company: " + company);
+        }
+        DayKey key = new DayKey(company, date, resolutionMinutes);
+        DayTariff cached = compiledDays.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        if (compiledDays.size() >= MAX_CACHED_DAYS) {
+            compiledDays.clear();
+        }
+        return compiledDays.computeIfAbsent(key, k -> versionOn(versions, company, date).compile(date, resolutionMinutes));
+    }
+
+    /**
+     * Total price per interval in micro-DKK: the day's spot prices plus the company's tariffs
+     */
+    public long[] totalMicros(String company, DayPrices day) {
+        DayTariff tariff = forDay(company, day.getDate(), day.getResolutionMinutes());
+        long[] totals = new long[day.size()];
+        for (int i = 0; i < totals.length; i++) {
+            int index = DayPrices.intervalIndexOf(day.getPrices().get(i), day.getDate(), day.getResolutionMinutes());
+            totals[i] = day.getSpotMicros(i) + tariff.getTariffMicros(index);
+        }
+        return totals;
+    }
+
+    /**
+     * A day's prices broken down into spot price and the company's tariff components
+     */
+    public List<TariffedPrice> apply(String company, DayPrices day) {
+        DayTariff tariff = forDay(company, day.getDate(), day.getResolutionMinutes());
+        long dayStart = day.getDate().atStartOfDay(PriceIntervals.ZONE).toEpochSecond();
+        List<TariffedPrice> prices = new ArrayList<>(day.size());
+        for (int i = 0; i < day.size(); i++) {
+            ElectricityPrice price = day.getPrices().get(i);
+            int index = DayPrices.intervalIndexOf(price, day.getDate(), day.getResolutionMinutes());
+            long start = dayStart + (long) index * day.getResolutionMinutes() * 60;
+            prices.add(new TariffedPrice(
+                Instant.ofEpochSecond(start).atZone(PriceIntervals.ZONE).toOffsetDateTime(),
+                day.getResolutionMinutes(),
+                price.getSpotPrice(),
+                PriceMicros.toBigDecimal(tariff.getGridMicros(index)),
+                PriceMicros.toBigDecimal(tariff.getTransmissionMicros()),
+                PriceMicros.toBigDecimal(tariff.getSystemMicros()),
+                PriceMicros.toBigDecimal(tariff.getElectricityTaxMicros()),
+                PriceMicros.toBigDecimal(day.getSpotMicros(i) + tariff.getTariffMicros(index))));
+        }
+        return prices;
+    }
+
+    private static CompiledVersion versionOn(List<CompiledVersion> versions, String company, LocalDate date) {
+        CompiledVersion applicable = null;
+        for (CompiledVersion version : versions) {
+            if (version.validFrom().isAfter(date)) {
+                break;
+            }
+            applicable = version;
+        }
+        if (applicable == null) {
+            throw new IllegalArgumentException("No tariff of " + company + " is valid on " + date);
+        }
+        return applicable;
+    }
+
+    private record DayKey(String company, LocalDate date, int resolutionMinutes) {
+    }
+
+    /**
+     * One tariff version with its time-of-use grid tariff resolved to a month x local hour table
+     */
+    private static final class CompiledVersion {
+        private final LocalDate validFrom;
+        private final long transmissionMicros;
+        private final long systemMicros;
+        private final long electricityTaxMicros;
+        private final long[][] gridMicrosByMonthAndHour = new long[12][24];
+
+        private CompiledVersion(TariffProperties.Version version) {
+            this.validFrom = version.getValidFrom();
+            this.transmissionMicros = PriceMicros.of(version.getTransmissionTariff());
+            this.systemMicros = PriceMicros.of(version.getSystemTariff());
+            this.electricityTaxMicros = PriceMicros.of(version.getElectricityTax());
+            for (int month = 1; month <= 12; month++) {
+                for (int hour = 0; hour < 24; hour++) {
+                    gridMicrosByMonthAndHour[month - 1][hour] = gridRate(version.getGridTariff(), month, hour);
+                }
+            }
+        }
+
+        private static long gridRate(List<TariffProperties.Band> bands, int month, int hour) {
+            for (TariffProperties.Band band : bands) {
+                boolean inMonth = band.getMonths().isEmpty() || band.getMonths().contains(month);
+                if (inMonth && hour >= band.getFromHour() && hour < band.getToHour()) {
+                    return PriceMicros.of(band.getRate());
+                }
+            }
+            return 0;
+        }
+
+        private LocalDate validFrom() {
+            return validFrom;
+        }
+
+        private DayTariff compile(LocalDate date, int resolutionMinutes) {
+            long[] hourRates = gridMicrosByMonthAndHour[date.getMonthValue() - 1];
+            long[] gridMicros = new long[PriceIntervals.slotsPerDay(date, resolutionMinutes)];
+            for (int index = 0; index < gridMicros.length; index++) {
+                // Local hour of the interval start, so the repeated autumn hour gets the tariff of that hour again
+                gridMicros[index] = hourRates[PriceIntervals.startOf(date, index, resolutionMinutes).getHour()];
+            }
+            return new DayTariff(transmissionMicros, systemMicros, electricityTaxMicros, gridMicros);
+        }
+    }
+
+    /**
+     * Tariffs for every interval of one day, in micro-DKK
+     */
+    public static final class DayTariff {
+        private final long transmissionMicros;
+        private final long systemMicros;
+        private final long electricityTaxMicros;
+        private final long[] gridMicros;
+        private final long[] tariffMicros;
+
+        private DayTariff(long transmissionMicros, long systemMicros, long electricityTaxMicros, long[] gridMicros) {
+            this.transmissionMicros = transmissionMicros;
+            this.systemMicros = systemMicros;
+            this.electricityTaxMicros = electricityTaxMicros;
+            this.gridMicros = gridMicros;
+            this.tariffMicros = new long[gridMicros.length];
+            long flat = transmissionMicros + systemMicros + electricityTaxMicros;
+            for (int i = 0; i < gridMicros.length; i++) {
+                tariffMicros[i] = gridMicros[i] + flat;
+            }
+        }
+
+        public int getSlotCount() {
+            return tariffMicros.length;
+        }
+
+        /**
+         * Sum of all tariffs and taxes of the interval
+         */
+        public long getTariffMicros(int intervalIndex) {
+            return tariffMicros[intervalIndex];
+        }
+
+        /**
+         * Time-of-use grid tariff of the interval
+         */
+        public long getGridMicros(int intervalIndex) {
+            return gridMicros[intervalIndex];
+        }
+
+        public long getTransmissionMicros() {
+            return transmissionMicros;
+        }
+
+        public long getSystemMicros() {
+            return systemMicros;
+        }
+
+        public long getElectricityTaxMicros() {
+            return electricityTaxMicros;
+        }
+    }
+
+    /**
+     * One interval's price with the tariff components of a grid company, DKK per kWh
+     */
+    public static class TariffedPrice {
+        private final OffsetDateTime start;
+        private final int resolutionMinutes;
+        private final BigDecimal spotPrice;
+        private final BigDecimal gridTariff;
+        private final BigDecimal transmissionTariff;
+        private final BigDecimal systemTariff;
+        private final BigDecimal electricityTax;
+        private final BigDecimal totalPrice;
+
+        public TariffedPrice(OffsetDateTime start, int resolutionMinutes, BigDecimal spotPrice, BigDecimal gridTariff,
+                             BigDecimal transmissionTariff, BigDecimal systemTariff, BigDecimal electricityTax,
+                             BigDecimal totalPrice) {
+            this.start = start;
+            this.resolutionMinutes = resolutionMinutes;
+            this.spotPrice = spotPrice;
+            this.gridTariff = gridTariff;
+            this.transmissionTariff = transmissionTariff;
+            this.systemTariff = systemTariff;
+            this.electricityTax = electricityTax;
+            this.totalPrice = totalPrice;
+        }
+
+        // Getters
+        public OffsetDateTime getStart() { return start; }
+        public int getResolutionMinutes() { return resolutionMinutes; }
+        public BigDecimal getSpotPrice() { return spotPrice; }
+        public BigDecimal getGridTariff() { return gridTariff; }
+        public BigDecimal getTransmissionTariff() { return transmissionTariff; }
+        public BigDecimal getSystemTariff() { return systemTariff; }
+        public BigDecimal getElectricityTax() { return electricityTax; }
+        public BigDecimal getTotalPrice() { return totalPrice; }
+    }
+}
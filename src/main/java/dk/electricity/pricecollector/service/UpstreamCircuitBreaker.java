@@ -0,0 +1,88 @@
+package dk.electricity.pricecollector.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Circuit breaker in front of elprisenligenu.dk. After failure-threshold consecutive failures
+ * (connection errors, timeouts, 5xx or 429) calls are refused for open-duration; then a single
+ * trial call is let through, which closes the circuit on success or reopens it on failure.
+ * "Not published yet" (404) is an expected answer and counts as success.
+ */
+@Component
+public class UpstreamCircuitBreaker {
+
+    private static final Logger logger = LoggerFactory.getLogger(UpstreamCircuitBreaker.class);
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long openNanos;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean trialInFlight;
+
+    public UpstreamCircuitBreaker(@Value("${price-collector.api.circuit-breaker.failure-threshold:5}") int failureThreshold,
+                                  @Value("${price-collector.api.circuit-breaker.open-duration:2m}") Duration openDuration,
+                                  MeterRegistry meterRegistry) {
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openDuration.toNanos();
+        Gauge.builder("pricecollector.upstream.circuit.state", this, breaker -> breaker.getState().ordinal())
+            .description("Circuit breaker state for elprisenligenu.dk: 0 closed, 1 open, 2 half-open")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Whether a call may go to the upstream now. Every permitted call must be followed by
+     * {@link #recordSuccess()} or {@link #recordFailure()}.
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN && System.nanoTime() - openedAt >= openNanos) {
+            state = State.HALF_OPEN;
+            trialInFlight = false;
+        }
+        return switch (state) {
+            case CLOSED -> true;
+            case OPEN -> false;
+            case HALF_OPEN -> {
+                if (trialInFlight) {
+                    yield false;
+                }
+                trialInFlight = true;
+                yield true;
+            }
+        };
+    }
+
+    public synchronized void recordSuccess() {
+        if (state != State.CLOSED) {
+            logger.info("Upstream circuit closed");
+        }
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        trialInFlight = false;
+    }
+
+    public synchronized void recordFailure() {
+        consecutiveFailures++;
+        trialInFlight = false;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+            logger.warn("Upstream circuit opened after {} consecutive failures, retrying in {} s",
+                consecutiveFailures, openNanos / 1_000_000_000);
+            state = State.OPEN;
+            openedAt = System.nanoTime();
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+}
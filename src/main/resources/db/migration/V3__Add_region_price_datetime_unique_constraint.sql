@@ -0,0 +1,15 @@
+-- Unique key for idempotent ingestion
+-- Allows INSERT ... ON CONFLICT (region, price_date_time) upserts instead of one existence check per row
+
+-- Remove duplicates left by earlier ingestion runs, keeping the most recently inserted row
+DELETE FROM electricity_prices older
+USING electricity_prices newer
+WHERE older.region = newer.region
+  AND older.price_date_time = newer.price_date_time
+  AND older.id < newer.id;
+
+ALTER TABLE electricity_prices
+    ADD CONSTRAINT uk_region_price_date_time UNIQUE (region, price_date_time);
+
+-- Comments for documentation
+COMMENT ON CONSTRAINT uk_region_price_date_time ON electricity_prices IS 'One price per region and hour; conflict target for batch upserts';
@@ -0,0 +1,26 @@
+-- Quarter-hour (15-minute MTU) support
+-- Prices are identified by their interval within the day instead of the hour, so a day can hold
+-- 24 hourly or 96 quarter-hourly prices (23/25 and 92/100 on daylight saving transition days)
+
+ALTER TABLE electricity_prices ADD COLUMN IF NOT EXISTS resolution_minutes INTEGER NOT NULL DEFAULT 60;
+ALTER TABLE electricity_prices ADD COLUMN IF NOT EXISTS interval_index INTEGER;
+
+-- Existing rows are hourly: index = hours elapsed since local midnight (differs from hour on DST days)
+UPDATE electricity_prices
+SET interval_index = FLOOR(EXTRACT(EPOCH FROM
+        (price_date_time AT TIME ZONE 'Europe/Copenhagen') - (price_date::timestamp AT TIME ZONE 'Europe/Copenhagen')
+    ) / 60 / resolution_minutes)::INTEGER
+WHERE interval_index IS NULL;
+
+ALTER TABLE electricity_prices ALTER COLUMN interval_index SET NOT NULL;
+
+-- The interval is the natural key; price_date_time is ambiguous during the repeated autumn hour
+ALTER TABLE electricity_prices DROP CONSTRAINT IF EXISTS uk_region_price_date_time;
+ALTER TABLE electricity_prices
+    ADD CONSTRAINT uk_region_price_date_interval UNIQUE (region, price_date, interval_index);
+
+-- Comments for documentation
+COMMENT ON COLUMN electricity_prices.interval_index IS 'Interval of the day counted from local midnight (0-23 hourly, 0-95 quarter-hourly)';
+COMMENT ON COLUMN electricity_prices.resolution_minutes IS 'Interval length in minutes: 60 (hourly) or 15 (quarter-hourly)';
+COMMENT ON COLUMN electricity_prices.hour IS 'Local hour of the day (0-23) the interval starts in';
+COMMENT ON CONSTRAINT uk_region_price_date_interval ON electricity_prices IS 'One price per region, date and interval; conflict target for batch upserts';
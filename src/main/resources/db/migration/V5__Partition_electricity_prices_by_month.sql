@@ -0,0 +1,104 @@
+-- Monthly range partitioning on price_date
+-- Queries for a single day only touch one partition, and retention drops whole partitions
+-- instead of deleting rows. PostgreSQL cannot convert a table in place, so the data is copied
+-- into a new partitioned table with the same columns.
+
+-- Keep the old table aside under a different name; index and constraint names are schema wide
+ALTER TABLE electricity_prices RENAME TO electricity_prices_unpartitioned;
+ALTER TABLE electricity_prices_unpartitioned DROP CONSTRAINT IF EXISTS uk_region_price_date_interval;
+ALTER TABLE electricity_prices_unpartitioned DROP CONSTRAINT IF EXISTS electricity_prices_pkey;
+DROP INDEX IF EXISTS idx_price_datetime;
+DROP INDEX IF EXISTS idx_region;
+DROP INDEX IF EXISTS idx_price_date_region;
+DROP INDEX IF EXISTS idx_price_date_region_hour;
+DROP INDEX IF EXISTS idx_region_hour;
+DROP INDEX IF EXISTS idx_total_price;
+DROP INDEX IF EXISTS idx_spot_price;
+DROP INDEX IF EXISTS idx_recent_prices;
+
+-- Unique constraints on a partitioned table must include the partition key, hence (id, price_date)
+CREATE TABLE electricity_prices (
+    id BIGINT DEFAULT nextval('electricity_prices_id_seq'::regclass) NOT NULL,
+    created_at TIMESTAMP(6) WITHOUT TIME ZONE NOT NULL,
+    electricity_tax NUMERIC(10,6) NOT NULL,
+    price_date_time TIMESTAMP(6) WITHOUT TIME ZONE NOT NULL,
+    region VARCHAR(10) NOT NULL,
+    spot_price NUMERIC(10,6) NOT NULL,
+    system_tariff NUMERIC(10,6) NOT NULL,
+    total_price NUMERIC(10,6) NOT NULL,
+    transmission_tariff NUMERIC(10,6) NOT NULL,
+    updated_at TIMESTAMP(6) WITHOUT TIME ZONE NOT NULL,
+    price_date DATE NOT NULL,
+    hour INTEGER NOT NULL,
+    resolution_minutes INTEGER NOT NULL DEFAULT 60,
+    interval_index INTEGER NOT NULL,
+
+    CONSTRAINT electricity_prices_pkey PRIMARY KEY (id, price_date),
+    CONSTRAINT uk_region_price_date_interval UNIQUE (region, price_date, interval_index)
+) PARTITION BY RANGE (price_date);
+
+-- Creates the partition holding the month of the given date, named electricity_prices_YYYY_MM.
+-- Idempotent; called by the application before writing and ahead of time by the scheduler.
+CREATE OR REPLACE FUNCTION create_electricity_prices_partition(for_date DATE) RETURNS TEXT AS $$
+DECLARE
+    month_start DATE := date_trunc('month', for_date)::DATE;
+    month_end DATE := (date_trunc('month', for_date) + INTERVAL '1 month')::DATE;
+    partition_name TEXT := 'electricity_prices_' || to_char(for_date, 'YYYY_MM');
+BEGIN
+    EXECUTE format('CREATE TABLE IF NOT EXISTS %I PARTITION OF electricity_prices FOR VALUES FROM (%L) TO (%L)',
+                   partition_name, month_start, month_end);
+    RETURN partition_name;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Partitions for all existing data plus the next three months
+DO $$
+DECLARE
+    month DATE := date_trunc('month', COALESCE((SELECT MIN(price_date) FROM electricity_prices_unpartitioned), CURRENT_DATE))::DATE;
+    last_month DATE := date_trunc('month', GREATEST(
+        COALESCE((SELECT MAX(price_date) FROM electricity_prices_unpartitioned), CURRENT_DATE),
+        CURRENT_DATE + INTERVAL '3 months'))::DATE;
+BEGIN
+    WHILE month <= last_month LOOP
+        PERFORM create_electricity_prices_partition(month);
+        month := (month + INTERVAL '1 month')::DATE;
+    END LOOP;
+END;
+$$;
+
+INSERT INTO electricity_prices (id, created_at, electricity_tax, price_date_time, region, spot_price, system_tariff,
+                                total_price, transmission_tariff, updated_at, price_date, hour, resolution_minutes,
+                                interval_index)
+SELECT id, created_at, electricity_tax, price_date_time, region, spot_price, system_tariff,
+       total_price, transmission_tariff, updated_at, price_date, hour, resolution_minutes, interval_index
+FROM electricity_prices_unpartitioned;
+
+DROP TABLE electricity_prices_unpartitioned;
+
+-- Indexes are created on the parent and inherited by every partition, including future ones.
+-- Lookups by (region, price_date) are served by the unique constraint's index; region alone and
+-- (region, hour) are too unselective to be worth keeping per partition.
+CREATE INDEX idx_price_datetime ON electricity_prices (price_date_time);
+CREATE INDEX idx_price_date_region_hour ON electricity_prices (price_date, region, hour);
+CREATE INDEX idx_total_price ON electricity_prices (total_price);
+CREATE INDEX idx_spot_price ON electricity_prices (spot_price);
+CREATE INDEX idx_recent_prices ON electricity_prices (price_date_time DESC, region);
+
+-- Comments for documentation
+COMMENT ON TABLE electricity_prices IS 'Stores Danish electricity prices with all tariffs and taxes for DK1 and DK2 regions; range partitioned by month on price_date';
+COMMENT ON COLUMN electricity_prices.spot_price IS 'Spot price in DKK per kWh';
+COMMENT ON COLUMN electricity_prices.transmission_tariff IS 'Transmission tariff in DKK per kWh';
+COMMENT ON COLUMN electricity_prices.system_tariff IS 'System tariff in DKK per kWh';
+COMMENT ON COLUMN electricity_prices.electricity_tax IS 'Electricity tax in DKK per kWh';
+COMMENT ON COLUMN electricity_prices.total_price IS 'Total price including all tariffs and taxes in DKK per kWh';
+COMMENT ON COLUMN electricity_prices.region IS 'Denmark region: DK1 (West) or DK2 (East)';
+COMMENT ON COLUMN electricity_prices.price_date IS 'The date these prices are valid for; partition key';
+COMMENT ON COLUMN electricity_prices.hour IS 'Local hour of the day (0-23) the interval starts in';
+COMMENT ON COLUMN electricity_prices.interval_index IS 'Interval of the day counted from local midnight (0-23 hourly, 0-95 quarter-hourly)';
+COMMENT ON COLUMN electricity_prices.resolution_minutes IS 'Interval length in minutes: 60 (hourly) or 15 (quarter-hourly)';
+COMMENT ON CONSTRAINT uk_region_price_date_interval ON electricity_prices IS 'One price per region, date and interval; conflict target for batch upserts';
+COMMENT ON INDEX idx_price_datetime IS 'Optimizes lookups by exact price time';
+COMMENT ON INDEX idx_total_price IS 'Optimizes queries for lowest/highest total prices';
+COMMENT ON INDEX idx_spot_price IS 'Optimizes queries for lowest/highest spot prices and rankings';
+COMMENT ON INDEX idx_recent_prices IS 'Optimizes queries for recent prices with DESC ordering';
+COMMENT ON FUNCTION create_electricity_prices_partition(DATE) IS 'Creates the monthly partition for the given date if it does not exist';
@@ -0,0 +1,47 @@
+-- Compact region ids
+-- With many bidding zones (DK1-2, SE1-4, NO1-5, FI, EE, ...) every row and every index entry
+-- carried the zone code as VARCHAR. Rows now reference a SMALLINT id from the regions table;
+-- the application maps codes to ids in memory, and queries by code resolve the id once through
+-- the unique code index instead of joining the lookup table.
+
+CREATE TABLE regions (
+    id SMALLINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    code VARCHAR(10) NOT NULL,
+
+    CONSTRAINT uk_regions_code UNIQUE (code)
+);
+
+-- Danish zones keep stable ids; any other stored region (e.g. benchmark data) follows
+INSERT INTO regions (code) VALUES ('DK1'), ('DK2');
+INSERT INTO regions (code)
+SELECT region FROM (SELECT DISTINCT region FROM electricity_prices) stored
+WHERE region NOT IN (SELECT code FROM regions)
+ORDER BY region;
+
+ALTER TABLE electricity_prices ADD COLUMN region_id SMALLINT;
+
+UPDATE electricity_prices ep
+SET region_id = r.id
+FROM regions r
+WHERE r.code = ep.region;
+
+ALTER TABLE electricity_prices ALTER COLUMN region_id SET NOT NULL;
+
+-- Dropping the column also drops the indexes and the unique constraint that include it
+ALTER TABLE electricity_prices DROP COLUMN region;
+
+ALTER TABLE electricity_prices
+    ADD CONSTRAINT uk_region_price_date_interval UNIQUE (region_id, price_date, interval_index);
+ALTER TABLE electricity_prices
+    ADD CONSTRAINT fk_electricity_prices_region FOREIGN KEY (region_id) REFERENCES regions (id);
+
+CREATE INDEX idx_price_date_region_hour ON electricity_prices (price_date, region_id, hour);
+CREATE INDEX idx_recent_prices ON electricity_prices (price_date_time DESC, region_id);
+
+-- Comments for documentation
+COMMENT ON TABLE regions IS 'Bidding zones prices are stored for; ids are referenced by electricity_prices.region_id';
+COMMENT ON COLUMN regions.code IS 'Bidding zone code, e.g. DK1, SE3, NO2';
+COMMENT ON TABLE electricity_prices IS 'Stores electricity prices with all tariffs and taxes per bidding zone; range partitioned by month on price_date';
+COMMENT ON COLUMN electricity_prices.region_id IS 'Bidding zone, see regions';
+COMMENT ON CONSTRAINT uk_region_price_date_interval ON electricity_prices IS 'One price per region, date and interval; conflict target for batch upserts';
+COMMENT ON INDEX idx_recent_prices IS 'Optimizes queries for recent prices with DESC ordering';
@@ -28,7 +28,7 @@ function formatDateTime(dateTime) {
     }).format(new Date(dateTime));
 }
 
-// Auto-refresh functionality
+// Auto-refresh fallback for browsers without EventSource support
 function startAutoRefresh(intervalSeconds = 300) {
     setInterval(() => {
         const autoRefreshElements = document.querySelectorAll('[data-auto-refresh]');
@@ -40,7 +40,36 @@ function startAutoRefresh(intervalSeconds = 300) {
     }, intervalSeconds * 1000);
 }
 
-// Initialize auto-refresh when DOM is ready
+// Server-pushed price updates: 'price-changed' when a new hour (or quarter hour) starts,
+// 'prices-updated' when new day-ahead prices were stored.
+// Pages set data-region on <body> to ignore updates for other regions.
+function subscribeToPriceUpdates() {
+    const source = new EventSource('/api/prices/stream');
+    const pageRegion = document.body.dataset.region;
+
+    const onUpdate = function(event) {
+        const update = JSON.parse(event.data);
+        if (pageRegion && update.region !== pageRegion) {
+            return;
+        }
+        document.querySelectorAll('[data-auto-refresh]').forEach(element => {
+            if (element.hasAttribute('hx-get')) {
+                htmx.trigger(element, 'refresh');
+            }
+        });
+        document.dispatchEvent(new CustomEvent('price-update', { detail: { type: event.type, ...update } }));
+    };
+
+    source.addEventListener('price-changed', onUpdate);
+    source.addEventListener('prices-updated', onUpdate);
+    // EventSource reconnects by itself after errors and server-side timeouts
+}
+
+// Initialize price updates when DOM is ready
 document.addEventListener('DOMContentLoaded', function() {
-    startAutoRefresh(300); // Refresh every 5 minutes
+    if (window.EventSource) {
+        subscribeToPriceUpdates();
+    } else {
+        startAutoRefresh(300); // Refresh every 5 minutes
+    }
 });
\ No newline at end of file
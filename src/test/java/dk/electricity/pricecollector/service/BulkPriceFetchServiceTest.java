@@ -0,0 +1,227 @@
+package dk.electricity.pricecollector.service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import dk.electricity.pricecollector.config.RegionProperties;
+import dk.electricity.pricecollector.config.TariffProperties;
+import dk.electricity.pricecollector.repository.ElectricityPriceBatchRepository.UpsertResult;
+import dk.electricity.pricecollector.repository.RegionRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs bulk fetches against a local stub of elprisenligenu.dk that answers each day with
+ * prices, 404 (not published), a 5xx error or a response slower than the read timeout.
+ */
+class BulkPriceFetchServiceTest {
+
+    private static final ZoneId COPENHAGEN = ZoneId.of("Europe/Copenhagen");
+    private static final DateTimeFormatter PATH_DATE = DateTimeFormatter.ofPattern("yyyy/MM-dd");
+    private static final LocalDate FIRST_DAY = LocalDate.of(2024, 3, 4);
+    private static final Duration READ_TIMEOUT = Duration.ofMillis(300);
+
+    private enum Answer { PRICES, NOT_FOUND, SERVER_ERROR, SLOW }
+
+    private final Map<LocalDate, Answer> answers = new ConcurrentHashMap<>();
+    private final Map<LocalDate, AtomicInteger> requests = new ConcurrentHashMap<>();
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private UpstreamCircuitBreaker circuitBreaker;
+    private ElectricityPriceService electricityPriceService;
+    private ElprisenLigenuService elprisenLigenuService;
+    private RegionRegistry regionRegistry;
+    private BulkPriceFetchService bulkFetchService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/api/v1/prices/", this::handle);
+        serverExecutor = Executors.newCachedThreadPool();
+        server.setExecutor(serverExecutor);
+        server.start();
+        String baseUrl = "http://127.0.0.1:" + server.getAddress().getPort() + "/api/v1/prices/";
+
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        circuitBreaker = new UpstreamCircuitBreaker(2, Duration.ofMinutes(10), meterRegistry);
+        regionRegistry = new RegionRegistry(new RegionProperties(), mock(RegionRepository.class));
+        electricityPriceService = mock(ElectricityPriceService.class);
+        when(electricityPriceService.upsertPrices(anyList()))
+            .thenAnswer(invocation -> new UpsertResult(invocation.<List<?>>getArgument(0).size(), 0, 0));
+
+        elprisenLigenuService = new ElprisenLigenuService(new RestTemplateBuilder(), baseUrl,
+            Duration.ofSeconds(1), READ_TIMEOUT, new TariffEngine(new TariffProperties()));
+        ReflectionTestUtils.setField(elprisenLigenuService, "electricityPriceService", electricityPriceService);
+        ReflectionTestUtils.setField(elprisenLigenuService, "priceMetrics", new PriceMetrics(meterRegistry));
+        ReflectionTestUtils.setField(elprisenLigenuService, "circuitBreaker", circuitBreaker);
+        ReflectionTestUtils.setField(elprisenLigenuService, "regionRegistry", regionRegistry);
+        ReflectionTestUtils.setField(elprisenLigenuService, "streamingParser", true);
+    }
+
+    private BulkPriceFetchService bulkFetchService(int concurrency) {
+        bulkFetchService = new BulkPriceFetchService(concurrency);
+        ReflectionTestUtils.setField(bulkFetchService, "elprisenLigenuService", elprisenLigenuService);
+        ReflectionTestUtils.setField(bulkFetchService, "electricityPriceService", electricityPriceService);
+        ReflectionTestUtils.setField(bulkFetchService, "regionRegistry", regionRegistry);
+        ReflectionTestUtils.setField(bulkFetchService, "retentionService", mock(RetentionService.class));
+        ReflectionTestUtils.setField(bulkFetchService, "taskExecutor", new SimpleAsyncTaskExecutor("bulk-fetch-run-"));
+        ReflectionTestUtils.setField(bulkFetchService, "queueCapacity", 2);
+        ReflectionTestUtils.setField(bulkFetchService, "maxDays", 3660);
+        ReflectionTestUtils.setField(bulkFetchService, "persistTimeout", Duration.ofSeconds(30));
+        return bulkFetchService;
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (bulkFetchService != null) {
+            bulkFetchService.shutdown();
+        }
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    void storesEveryDayThroughTheBoundedQueue() {
+        // More days than queue slots and workers, so downloaders block until the caller drains
+        LocalDate lastDay = FIRST_DAY.plusDays(9);
+
+        BulkPriceFetchService.BulkFetchResult result = bulkFetchService(4).fetchAndSaveRange(FIRST_DAY, lastDay, Set.of("DK1"));
+
+        assertThat(result.getRequestedDays()).isEqualTo(10);
+        assertThat(result.getStoredDays()).isEqualTo(10);
+        assertThat(result.getMissingDays()).isEmpty();
+        assertThat(result.getRows().getInserted()).isEqualTo(10 * 24);
+        verify(electricityPriceService, times(10)).upsertPrices(anyList());
+        assertThat(circuitBreaker.getState()).isEqualTo(UpstreamCircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void timeoutAndServerErrorOpenTheCircuit() {
+        // One worker, so the days are requested in order
+        bulkFetchService(1);
+        answers.put(FIRST_DAY.plusDays(1), Answer.NOT_FOUND);
+        answers.put(FIRST_DAY.plusDays(2), Answer.SLOW);
+        answers.put(FIRST_DAY.plusDays(3), Answer.SERVER_ERROR);
+        LocalDate lastDay = FIRST_DAY.plusDays(5);
+
+        BulkPriceFetchService.BulkFetchResult result = bulkFetchService.fetchAndSaveRange(FIRST_DAY, lastDay, Set.of("DK1"));
+
+        assertThat(result.getStoredDays()).isEqualTo(1);
+        assertThat(result.getMissingDays()).containsExactly(
+            FIRST_DAY.plusDays(1) + " DK1", FIRST_DAY.plusDays(2) + " DK1", FIRST_DAY.plusDays(3) + " DK1",
+            FIRST_DAY.plusDays(4) + " DK1", lastDay + " DK1");
+        verify(electricityPriceService, times(1)).upsertPrices(anyList());
+
+        // 404 counts as success, the timeout and the 5xx are the two failures that open the circuit
+        assertThat(circuitBreaker.getState()).isEqualTo(UpstreamCircuitBreaker.State.OPEN);
+        assertThat(requestCount(FIRST_DAY.plusDays(2))).isEqualTo(1);
+        assertThat(requestCount(FIRST_DAY.plusDays(3))).isEqualTo(1);
+        assertThat(requestCount(FIRST_DAY.plusDays(4))).isZero();
+        assertThat(requestCount(lastDay)).isZero();
+    }
+
+    @Test
+    void rejectsASecondBackfillWhileOneIsRunning() throws InterruptedException {
+        answers.put(FIRST_DAY, Answer.SLOW);
+        BulkPriceFetchService service = bulkFetchService(2);
+
+        BulkPriceFetchService.BulkFetchStatus started = service.startRange(FIRST_DAY, FIRST_DAY.plusDays(1), Set.of("DK1"));
+        assertThat(started.isRunning()).isTrue();
+        assertThatThrownBy(() -> service.fetchAndSaveRange(FIRST_DAY, FIRST_DAY, Set.of("DK1")))
+            .isInstanceOf(IllegalStateException.class);
+
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (service.getStatus().isRunning() && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertThat(service.getStatus().isRunning()).isFalse();
+        assertThat(service.getStatus().getResult().getStoredDays()).isEqualTo(1);
+        // Once finished, the next backfill may start
+        assertThat(service.fetchAndSaveRange(FIRST_DAY.plusDays(1), FIRST_DAY.plusDays(1), Set.of("DK1")).getStoredDays())
+            .isEqualTo(1);
+    }
+
+    private int requestCount(LocalDate date) {
+        AtomicInteger count = requests.get(date);
+        return count != null ? count.get() : 0;
+    }
+
+    // Paths look like /api/v1/prices/2024/03-04_DK1.json
+    private void handle(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        String file = path.substring(path.lastIndexOf('/') - 4);
+        LocalDate date = LocalDate.parse(file.substring(0, file.indexOf('_')), PATH_DATE);
+        requests.computeIfAbsent(date, d -> new AtomicInteger()).incrementAndGet();
+
+        switch (answers.getOrDefault(date, Answer.PRICES)) {
+            case NOT_FOUND -> respond(exchange, 404, "Not Found");
+            case SERVER_ERROR -> respond(exchange, 503, "Service Unavailable");
+            case SLOW -> {
+                try {
+                    Thread.sleep(READ_TIMEOUT.multipliedBy(5).toMillis());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                respond(exchange, 200, pricesJson(date));
+            }
+            case PRICES -> respond(exchange, 200, pricesJson(date));
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        } catch (IOException e) {
+            // The client gave up waiting, e.g. after its read timeout
+        }
+    }
+
+    private static String pricesJson(LocalDate date) {
+        StringBuilder json = new StringBuilder("[");
+        OffsetDateTime start = date.atStartOfDay(COPENHAGEN).toOffsetDateTime();
+        for (int hour = 0; hour < 24; hour++) {
+            if (hour > 0) {
+                json.append(',');
+            }
+            json.append("{\"DKK_per_kWh\":").append(0.5 + hour / 100.0)
+                .append(",\"EUR_per_kWh\":0.067,\"EXR\":7.46")
+                .append(",\"time_start\":\"").append(start.plusHours(hour))
+                .append("\",\"time_end\":\"").append(start.plusHours(hour + 1)).append("\"}");
+        }
+        return json.append(']').toString();
+    }
+}